@@ -1,13 +1,28 @@
 import controller.GUIController;
+import controller.LoadMode;
 import gui.MainScreen;
+import storage.StorageEngine;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 
 public class Main {
     public static void main(String[] args) {
         try {
-            GUIController c = new GUIController();
+            // Load mode and storage can be picked from the command line, sequential and V100 by default.
+            // --timings prints how long each region took to decode
+            List<String> options = new ArrayList<>(List.of(args));
+            boolean timings = options.remove("--timings");
+            LoadMode mode = options.size() > 0 ? LoadMode.valueOf(options.get(0).toUpperCase(Locale.ROOT)) : LoadMode.SEQUENTIAL;
+            StorageEngine engine = options.size() > 1 ? StorageEngine.valueOf(options.get(1).toUpperCase(Locale.ROOT)) : StorageEngine.V100;
+            GUIController c = new GUIController(mode, engine.open());
+            if (timings) c.getDecodeTimes().forEach((region, time) ->
+                    System.out.println("Decoded " + region + " in " + time.toMillis() + "ms"));
+            if (c.getReplayedCount() != 0)
+                System.out.println("Recovered " + c.getReplayedCount() + " unsaved operations from the journal");
 
             MainScreen gui = new MainScreen(c);
             gui.pack();
@@ -0,0 +1,130 @@
+package benchmark;
+
+import controller.GUIController;
+import controller.LoadMode;
+import kerbals.FlightLog;
+import kerbals.Job;
+import kerbals.Kerbal;
+import missions.CrewDetails;
+import missions.Mission;
+import other.util.Destination;
+import other.util.KSPDate;
+import other.util.Tokenizer;
+import storage.MemoryBackend;
+import vessels.Concept;
+import vessels.IterationChange;
+import vessels.VesselProperty;
+import vessels.VesselType;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Decode throughput of the stored records, and how much of it splitting costs with {@link String#split} compared to
+ * the {@link Tokenizer}. Runs on a controller with a {@link MemoryBackend}, so nothing touches the disk.
+ * <p>
+ * {@code java benchmark.CodecBenchmark [records] [rounds]}
+ */
+public class CodecBenchmark {
+
+    private record Split(String s, String delimiter) {}
+
+    private static long sink = 0; // Keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        GUIController c = new GUIController(LoadMode.SEQUENTIAL, new MemoryBackend());
+        List<List<String>> kerbals = new ArrayList<>(records);
+        List<List<String>> missions = new ArrayList<>(records);
+        List<List<String>> concepts = new ArrayList<>(records);
+        Random random = new Random(42);
+        for (int i = 0; i != records; i++) {
+            kerbals.add(kerbalRecord(c, i, random));
+            missions.add(missionRecord(c, i, random));
+            concepts.add(conceptRecord(c, i, random));
+        }
+
+        // Every split the decoders make, with the delimiter they make it with
+        List<Split> splits = new ArrayList<>();
+        for (int i = 0; i != records; i++) {
+            List<String> k = kerbals.get(i);
+            splits.add(new Split(k.get(Kerbal.SCHEMA.indexOf(Kerbal.Stored.HIRING_DATE)), KSPDate.DELIMITER));
+            String log = k.get(Kerbal.SCHEMA.indexOf(Kerbal.Stored.LOG));
+            splits.add(new Split(log, Kerbal.DELIMITER));
+            for (String entry : Tokenizer.split(log, Kerbal.DELIMITER)) splits.add(new Split(entry, ":fl:"));
+            List<String> m = missions.get(i);
+            String crews = m.get(Mission.SCHEMA.indexOf(Mission.Stored.CREW));
+            splits.add(new Split(crews, ":m:"));
+            for (String crew : Tokenizer.split(crews, ":m:")) {
+                splits.add(new Split(crew, "<>"));
+                String details = Tokenizer.split(crew, "<>")[1];
+                splits.add(new Split(details, CrewDetails.DELIMITER));
+                splits.add(new Split(Tokenizer.split(details, CrewDetails.DELIMITER)[3], KSPDate.DELIMITER));
+            }
+            List<String> co = concepts.get(i);
+            String iterations = co.get(Concept.SCHEMA.indexOf(Concept.Stored.ITERATIONS));
+            splits.add(new Split(iterations, Concept.DELIMITER));
+            for (String ic : Tokenizer.split(iterations, Concept.DELIMITER)) splits.add(new Split(ic, IterationChange.DELIMITER));
+            splits.add(new Split(co.get(Concept.SCHEMA.indexOf(Concept.Stored.DESTINATIONS)), Concept.DELIMITER));
+        }
+
+        System.out.println(records + " records per region, " + splits.size() + " splits per round");
+        for (int round = 0; round != rounds; round++) {
+            long regex = time(() -> {
+                for (Split s : splits) sink += s.s().split(s.delimiter()).length;
+            });
+            long tokenizer = time(() -> {
+                for (Split s : splits) sink += Tokenizer.split(s.s(), s.delimiter()).length;
+            });
+            long decode = time(() -> {
+                for (List<String> k : kerbals) sink += new Kerbal(c, Kerbal.SCHEMA.read(k)).getLog().size();
+                for (List<String> m : missions) sink += new Mission(c, Mission.SCHEMA.read(m)).getCrew().size();
+                for (List<String> co : concepts) sink += new Concept(c, Concept.SCHEMA.read(co)).getIteration();
+            });
+            System.out.printf("Round %d: String.split %dms, Tokenizer %dms (%.1fx), decode %dms (%.0f records/s)%n",
+                    round, regex / 1_000_000, tokenizer / 1_000_000, (double) regex / tokenizer,
+                    decode / 1_000_000, records * 3 / (decode / 1e9));
+        }
+        if (sink == 42) System.out.println(); // Never true, but the JIT can't know
+    }
+
+    private static long time(Runnable r) {
+        long start = System.nanoTime();
+        r.run();
+        return System.nanoTime() - start;
+    }
+
+    private static KSPDate date(GUIController c, Random random) {
+        return new KSPDate(c, 1 + random.nextInt(10), random.nextInt(426), random.nextInt(6), random.nextInt(60), random.nextInt(60));
+    }
+
+    private static List<String> kerbalRecord(GUIController c, int i, Random random) {
+        List<String> ret = new ArrayList<>(new Kerbal(c, "Kerbal" + i, random.nextBoolean(), random.nextBoolean(),
+                Job.values()[random.nextInt(3)], "Hired", date(c, random)).toStorableCollection());
+        StringJoiner log = new StringJoiner(Kerbal.DELIMITER);
+        for (int j = 0, n = random.nextInt(8); j != n; j++)
+            log.add(FlightLog.toString(new FlightLog(c, "Mission" + random.nextInt(1000), random.nextFloat() * 10)));
+        ret.set(Kerbal.SCHEMA.indexOf(Kerbal.Stored.LOG), log.length() == 0 ? "(none)" : log.toString());
+        return ret;
+    }
+
+    private static List<String> missionRecord(GUIController c, int i, Random random) {
+        Map<Kerbal, String> crew = new HashMap<>();
+        for (int j = 0, n = 1 + random.nextInt(4); j != n; j++)
+            crew.put(new Kerbal(c, "Crew" + i + "_" + j, true, false, Job.PILOT, "Hired", date(c, random)), "Pilot");
+        return new ArrayList<>(new Mission(c, "Mission" + i, random.nextLong(), crew, date(c, random)).toStorableCollection());
+    }
+
+    private static List<String> conceptRecord(GUIController c, int i, Random random) {
+        Destination[] destinations = Destination.values();
+        VesselProperty[] properties = VesselProperty.values();
+        Concept concept = new Concept(c, "Concept" + i, VesselType.values()[random.nextInt(5)], date(c, random),
+                new Destination[] {destinations[random.nextInt(destinations.length)]},
+                properties[random.nextInt(properties.length)]);
+        for (int j = 0, n = random.nextInt(4); j != n; j++)
+            concept.newIteration(new IterationChange(c, concept.getIteration() + 1, "Change " + j, date(c, random)));
+        return new ArrayList<>(concept.toStorableCollection());
+    }
+}
@@ -2,26 +2,31 @@ package controller;
 
 import kerbals.Kerbal;
 import missions.Mission;
+import other.KSPObject;
+import other.interfaces.Editable;
+import other.interfaces.KSPObjectListener;
 import vessels.Concept;
 import vessels.Vessel;
 
-import java.util.Set;
-
-public interface ControllerInterface {
+/**
+ * Collection getters return shared, read-only {@link Snapshot}s. They're cheap to call repeatedly, but must not be
+ * modified.
+ */
+public interface ControllerInterface extends ReferenceResolver {
     Kerbal getKerbal(String name);
-    Set<Kerbal> getKerbals();
+    Snapshot<Kerbal> getKerbals();
 
     Mission getMission(String name);
-    Set<Mission> getMissions();
+    Snapshot<Mission> getMissions();
 
     Concept getConcept(String name);
-    Set<Concept> getConcepts();
+    Snapshot<Concept> getConcepts();
 
     Vessel getInstance(long id);
-    Set<Vessel> getVessels();
+    Snapshot<Vessel> getVessels();
 
     Vessel getCrashedInstance(long id);
-    Set<Vessel> getCrashedVessels();
+    Snapshot<Vessel> getCrashedVessels();
 
     void addKerbal(Kerbal kerbal);
     void addMission(Mission mission);
@@ -34,6 +39,44 @@ public interface ControllerInterface {
     // Special case: crashed instances get moved to their own list
     void vesselCrashed(Vessel vessel);
 
+    // Must be called whenever an object changes a value the controller sorts it by
+    void reindex(KSPObject object);
+
+    // Called by objects on their first change after being saved or journaled, see KSPObject#markDirty()
+    void changed(KSPObject object);
+
+    // Field edits go through here, so that they can be journaled and undone
+    boolean edit(Editable object, int index, Object value);
+
     void ready();
     long rng();
+
+    // Who references whom, see KSPObject#addEventListener(). Kept in a ReferenceIndex, under the controller's lock
+    boolean addReference(KSPObject target, KSPObjectListener referrer);
+    boolean removeReference(KSPObject target, KSPObjectListener referrer);
+    boolean isReferenced(KSPObject target);
+    int fireDeletion(KSPObject source, String status);
+
+    // Single lookups, without any bookkeeping
+
+    @Override
+    default Kerbal resolveKerbal(KSPObject source, String name) {
+        return getKerbal(name);
+    }
+
+    @Override
+    default Mission resolveMission(KSPObject source, String name) {
+        return getMission(name);
+    }
+
+    @Override
+    default Concept resolveConcept(KSPObject source, String name) {
+        return getConcept(name);
+    }
+
+    @Override
+    default Vessel resolveVessel(KSPObject source, long id) {
+        Vessel v = getInstance(id);
+        return v != null ? v : getCrashedInstance(id);
+    }
 }
@@ -4,19 +4,36 @@ import kerbals.Job;
 import kerbals.Kerbal;
 import missions.Mission;
 import other.*;
+import other.interfaces.Editable;
+import other.interfaces.KSPObjectListener;
+import other.util.CelestialBody;
 import other.util.Destination;
 import other.util.KSPDate;
 import other.util.Location;
-import persistencelib.Atom;
-import persistencelib.Key;
-import persistencelib.StorageManager;
-import persistencelib.Version;
+import other.util.Schema;
+import other.util.StoredFields;
+import storage.Backend;
+import storage.Region;
+import storage.StorageEngine;
 import vessels.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Holds the whole career. It's safe to use from any thread: operations that change it are serialized, while lookups
+ * and listings don't block each other, and listings usually don't lock at all. Objects themselves aren't
+ * synchronized, so they should only be changed through the controller, or from a single thread.
+ */
 public class GUIController implements ControllerInterface {
 
     private static final String KERBAL_REGION = "Kerbals";
@@ -25,360 +42,1642 @@ public class GUIController implements ControllerInterface {
     private static final String VESSEL_REGION = "Vessels";
     private static final String CRASHED_REGION = "Crashed";
 
-    private final List<Kerbal> kerbals;
-    private final List<Mission> missions;
-    private final List<Concept> concepts;
-    private final List<Vessel> vessels;
-    private final List<Vessel> crashedVessels = new LinkedList<>();
+    private final NameRegistry<Kerbal> kerbals;
+    private final NameRegistry<Mission> missions;
+    private final NameRegistry<Concept> concepts;
+    private final VesselRegistry vessels;
+    private final VesselRegistry crashedVessels = new VesselRegistry();
     private final Random random;
+    private final ReferenceIndex references = new ReferenceIndex();
+
+    // Sorting keys
+    private record ConceptOrder(String family, int iteration) {}
+    private record VesselOrder(String family, int iteration, CelestialBody body, boolean inSpace, long id) {}
+
+    private static final Comparator<ConceptOrder> CONCEPT_ORDER = Comparator
+            .comparing(ConceptOrder::family)
+            .thenComparing(ConceptOrder::iteration, Comparator.reverseOrder()); // Newest iteration first
+    private static final Comparator<VesselOrder> VESSEL_ORDER = Comparator
+            .comparing(VesselOrder::family)
+            .thenComparing(VesselOrder::iteration, Comparator.reverseOrder())
+            .thenComparing(VesselOrder::body)
+            .thenComparing(VesselOrder::inSpace) // Landed vessels first
+            .thenComparingLong(VesselOrder::id);
 
     // Persistence
 
-    private final StorageManager manager;
+    private final Backend backend;
+
+    private final LoadMode mode;
+    private final Function<StoredRecord, Kerbal> kerbalDecoder;
+    private final Function<StoredRecord, Mission> missionDecoder;
+    private final Function<StoredRecord, Concept> conceptDecoder;
+    private final Function<StoredRecord, Vessel> vesselDecoder;
+    private final Function<StoredRecord, Vessel> crashedDecoder;
+    /**
+     * Next surrogate key given to an object saved for the first time. Keys are unique across every region
+     */
+    private long nextKey = 0;
+    /**
+     * Keys of the records to remove from each region on the next save
+     */
+    private final Map<String, Set<String>> removals = new HashMap<>();
+    /**
+     * Objects changed since the last save
+     */
+    private final Set<KSPObject> unsaved = new LinkedHashSet<>();
+    /**
+     * Records written to each region during the last save
+     */
+    private final Map<String, Integer> saveCounts = new LinkedHashMap<>();
+
+    // Lazy loading, only used in LAZY mode
+    private LazyRegion<Kerbal> lazyKerbals;
+    private LazyRegion<Mission> lazyMissions;
+    private LazyRegion<Concept> lazyConcepts;
+    private LazyRegion<Vessel> lazyVessels;
+    private LazyRegion<Vessel> lazyCrashed;
+    private final MaterializationCache cache = new MaterializationCache(DEFAULT_CACHE_CAPACITY);
+    /**
+     * Amount of materializations currently linking. The cache is only trimmed once the outermost one is done, so
+     * objects aren't evicted halfway through being linked
+     */
+    private int materializing = 0;
+    /**
+     * Evicted objects still held somewhere else, such as a list, and how to bring each one back. Changing one of
+     * them materializes it again, so the change is saved instead of lost
+     */
+    private final Map<KSPObject, Runnable> evicted = new WeakHashMap<>();
+
+    public static final int DEFAULT_CACHE_CAPACITY = 1000;
+
+    // Undo
+
+    /**
+     * Memory the undo history may take by default, in bytes
+     */
+    public static final long DEFAULT_UNDO_BUDGET = 4 << 20;
+    private final UndoLog history = new UndoLog(DEFAULT_UNDO_BUDGET);
+    private record StoredKey(String region, String key) {}
+    /**
+     * Latest record of everything journaled since the last save, null if it was removed. Anything else is still as
+     * stored in its region
+     */
+    private final Map<StoredKey, Collection<String>> recorded = new HashMap<>();
+    /**
+     * True while undoing or redoing, which isn't added to the history
+     */
+    private boolean rewinding = false;
+
+    // Journal
+
+    /**
+     * Once the active journal segment grows past this size (in bytes), it's folded into the journal's checkpoint in the
+     * background
+     */
+    public static final long JOURNAL_COMPACTION_THRESHOLD = 1 << 20;
+    /**
+     * Null if the backend isn't journaled
+     */
+    private final Journal journal;
+    /**
+     * Objects changed since they were last journaled
+     */
+    private final Set<KSPObject> unrecorded = new LinkedHashSet<>();
+    /**
+     * Record removals not journaled yet
+     */
+    private final List<Journal.Entry> unrecordedRemovals = new ArrayList<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Journal compaction");
+        t.setDaemon(true);
+        return t;
+    });
+    /** A save being written to disk, and what it took out of the controller's unsaved state: the objects it stores,
+     * the removals it makes, the latest journaled records, and the records it writes to each region.
+     */
+    private record Saving(PendingSave save, List<KSPObject> objects, Map<String, Set<String>> removals,
+                          Map<StoredKey, Collection<String>> recorded, List<Journal.Entry> records) {}
+    /**
+     * Save being written to disk, if any. Only one is written at a time. Until it's done, the regions and the objects
+     * it stores are left as they were, so it can still be dropped if it fails
+     */
+    private Saving saving;
+    /**
+     * Journal compaction running in the background, if any. Saves wait for it, and it's skipped while one is written
+     */
+    private Future<?> pendingCompaction;
+    /**
+     * Amount of journaled operations applied on top of the database during the last load
+     */
+    private int replayed = 0;
+    /**
+     * True if the regions hold replayed changes that haven't been saved yet, so they differ from the stored database
+     */
+    private boolean replayUnsaved = false;
+
+    /**
+     * Time spent decoding each region during the last load, in insertion order
+     */
+    private final Map<String, Duration> decodeTimes = new LinkedHashMap<>();
+    /**
+     * Result of the last full link pass
+     */
+    private volatile LinkReport lastLinkReport = new LinkReport();
+
+    // Full-text search
+
+    /**
+     * Null until the first search
+     */
+    private TextIndex<TextKey> text;
+    private record TextKey(String region, String name) {}
+    /**
+     * Objects whose text may have changed since they were indexed. They're indexed again before the next search
+     */
+    private final Set<KSPObject> textChanged = new LinkedHashSet<>();
+    /**
+     * Key each object was last indexed under, since names and regions can change
+     */
+    private final Map<KSPObject, TextKey> textKeys = new WeakHashMap<>();
+
+    // Concurrency
+
+    /**
+     * Serializes everything that changes the controller. Lookups share the read lock; listings of a snapshot that's
+     * already been taken don't lock at all
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Thread holding the write lock. Objects call back into the controller while it's changing them, so that thread
+     * goes straight through instead of locking again
+     */
+    private volatile Thread writer;
 
     public GUIController() throws IOException {
+        this(LoadMode.SEQUENTIAL);
+    }
+
+    public GUIController(LoadMode mode) throws IOException {
+        this(mode, StorageEngine.V100.open());
+    }
+
+    /** Loads the database. In parallel mode, every region (and every chunk of the larger ones) is decoded on a
+     * separate fork-join task, and objects are only linked once everything is decoded. In lazy mode, nothing is
+     * decoded until it's looked up.
+     * @param mode How to load the regions
+     * @param backend Where the regions are stored
+     */
+    public GUIController(LoadMode mode, Backend backend) {
         this.random = new Random(LocalDate.now().hashCode());
-        this.kerbals = new LinkedList<>();
-        this.missions = new LinkedList<>();
-        this.concepts = new LinkedList<>();
-        this.vessels = new LinkedList<>();
+        this.mode = mode;
+        this.kerbals = new NameRegistry<>(Kerbal::getName);
+        this.missions = new NameRegistry<>(Mission::getName);
+        this.concepts = new NameRegistry<>(Concept::getName);
+        this.vessels = new VesselRegistry();
+        concepts.orderBy(c -> new ConceptOrder(c.getName(), c.getIteration()), CONCEPT_ORDER);
+        vessels.orderBy(GUIController::vesselOrder, VESSEL_ORDER);
+        crashedVessels.orderBy(GUIController::vesselOrder, VESSEL_ORDER);
+
+        kerbalDecoder = stored(checked("kerbal", Kerbal.SCHEMA, f -> new Kerbal(this, f)));
+        missionDecoder = stored(checked("mission", Mission.SCHEMA, f -> new Mission(this, f)));
+        conceptDecoder = stored(checked("vessel concept", Concept.SCHEMA, f -> new Concept(this, f)));
+        vesselDecoder = stored(checked("vessel instance", Vessel.SCHEMA, f -> new Vessel(this, f)));
+        crashedDecoder = stored(checked("crashed vessel instance", Vessel.SCHEMA, f -> new Vessel(this, f)));
+        if (mode == LoadMode.LAZY) {
+            // Lookup keys: the name for kerbals, missions and concepts, the id for vessels
+            lazyKerbals = new LazyRegion<>(Kerbal.SCHEMA.indexOf(Kerbal.Stored.NAME), kerbalDecoder);
+            lazyMissions = new LazyRegion<>(Mission.SCHEMA.indexOf(Mission.Stored.NAME), missionDecoder);
+            lazyConcepts = new LazyRegion<>(Concept.SCHEMA.indexOf(Concept.Stored.NAME), conceptDecoder);
+            lazyVessels = new LazyRegion<>(Vessel.SCHEMA.indexOf(Vessel.Stored.ID), vesselDecoder);
+            lazyCrashed = new LazyRegion<>(Vessel.SCHEMA.indexOf(Vessel.Stored.ID), crashedDecoder);
+        }
 
-        manager = new StorageManager("KSPDB", Version.V100);
+        this.backend = backend;
+        File journalFile = backend.getJournalFile();
+        journal = journalFile == null ? null : new Journal(journalFile,
+                new File(journalFile.getPath() + ".old"), new File(journalFile.getPath() + ".checkpoint"));
 
-        getPersistenceKerbals();
-        getPersistenceMissions();
-        getPersistenceConcepts();
-        getPersistenceInstances();
-        getPersistenceCrashedInstances();
+        load();
+    }
+
+    /** Decodes every region from the backend into memory, then links everything.
+     */
+    private void load() {
+        decodeTimes.clear();
+        replay();
+
+        // Regions aren't thread safe, so records are collected beforehand
+        nextKey = 0;
+        List<StoredRecord> kerbalRecords = getRecords(KERBAL_REGION);
+        List<StoredRecord> missionRecords = getRecords(MISSION_REGION);
+        List<StoredRecord> conceptRecords = getRecords(CONCEPT_REGION);
+        List<StoredRecord> vesselRecords = getRecords(VESSEL_REGION);
+        List<StoredRecord> crashedRecords = getRecords(CRASHED_REGION);
+
+        if (mode == LoadMode.LAZY) {
+            kerbals.addAll(timed(KERBAL_REGION, () -> defer(kerbalRecords, lazyKerbals)));
+            missions.addAll(timed(MISSION_REGION, () -> defer(missionRecords, lazyMissions)));
+            concepts.addAll(timed(CONCEPT_REGION, () -> defer(conceptRecords, lazyConcepts)));
+            vessels.addAll(timed(VESSEL_REGION, () -> defer(vesselRecords, lazyVessels)));
+            crashedVessels.addAll(timed(CRASHED_REGION, () -> defer(crashedRecords, lazyCrashed)));
+        } else if (mode == LoadMode.SEQUENTIAL) {
+            kerbals.addAll(timed(KERBAL_REGION, () -> RegionDecoder.decode(kerbalRecords, kerbalDecoder)));
+            missions.addAll(timed(MISSION_REGION, () -> RegionDecoder.decode(missionRecords, missionDecoder)));
+            concepts.addAll(timed(CONCEPT_REGION, () -> RegionDecoder.decode(conceptRecords, conceptDecoder)));
+            vessels.addAll(timed(VESSEL_REGION, () -> RegionDecoder.decode(vesselRecords, vesselDecoder)));
+            crashedVessels.addAll(timed(CRASHED_REGION, () -> RegionDecoder.decode(crashedRecords, crashedDecoder)));
+        } else {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            ForkJoinTask<List<Kerbal>> k = pool.submit(() -> timed(KERBAL_REGION, () -> new RegionDecoder<>(kerbalRecords, kerbalDecoder).invoke()));
+            ForkJoinTask<List<Mission>> m = pool.submit(() -> timed(MISSION_REGION, () -> new RegionDecoder<>(missionRecords, missionDecoder).invoke()));
+            ForkJoinTask<List<Concept>> c = pool.submit(() -> timed(CONCEPT_REGION, () -> new RegionDecoder<>(conceptRecords, conceptDecoder).invoke()));
+            ForkJoinTask<List<Vessel>> v = pool.submit(() -> timed(VESSEL_REGION, () -> new RegionDecoder<>(vesselRecords, vesselDecoder).invoke()));
+            ForkJoinTask<List<Vessel>> cv = pool.submit(() -> timed(CRASHED_REGION, () -> new RegionDecoder<>(crashedRecords, crashedDecoder).invoke()));
+
+            // Registries aren't thread safe either, insert once everything is decoded
+            kerbals.addAll(k.join());
+            missions.addAll(m.join());
+            concepts.addAll(c.join());
+            vessels.addAll(v.join());
+            crashedVessels.addAll(cv.join());
+        }
 
+        // Single linking phase
         ready();
     }
 
-    private void getPersistenceCrashedInstances() {
-        if (manager.getRegion(CRASHED_REGION) == null) manager.addRegion(CRASHED_REGION);
-        Atom atom = manager.getRegion(CRASHED_REGION);
-        atom.getItems().stream()
-                .map(atom::getItem)
-                .forEach(c -> {
+    /** Stores the records in the lazy region instead of decoding them. Records whose key is already taken can't be
+     * looked up later, so those are decoded right away.
+     * @return The objects that had to be decoded
+     */
+    private static <V extends KSPObject> List<V> defer(List<StoredRecord> records, LazyRegion<V> region) {
+        List<V> ret = new ArrayList<>();
+        for (StoredRecord r : records) {
+            if (region.put(r)) continue;
+            V v = region.decode(r);
+            if (v != null) ret.add(v);
+        }
+        return ret;
+    }
 
-                    if (c.size() != Vessel.ENCODE_FIELD_AMOUNT) {
-                        System.err.println("WARNING: Corrupt crashed vessel instance found: " + c + "\nExpected " +
-                                Vessel.ENCODE_FIELD_AMOUNT + " fields, got " + c.size());
-                        return;
-                    }
-                    crashedVessels.add(new Vessel(this, new LinkedList<>(c)));
-                });
+    /** Decodes the object stored under the key (or gives back the one evicted from it), registers it and links it.
+     * @return The object, or null if there's no such record (or it's corrupt).
+     */
+    private <V extends KSPObject> V materialize(LazyRegion<V> region, Registry<V> registry, String key) {
+        StoredRecord record = region.take(key);
+        if (record == null) return null;
+        V v = region.revive(key);
+        if (v != null) evicted.remove(v);
+        else v = region.decode(record);
+        if (v == null) return null;
+        registry.add(v);
+        V materialized = v;
+        cache.put(v, o -> {
+            o.unlink();
+            registry.removeValue(materialized);
+            region.put(key, record, materialized);
+            evicted.put(materialized, () -> materialize(region, registry, key));
+        });
+        materializing++;
+        try {
+            v.ready();
+        } finally {
+            materializing--;
+        }
+        if (materializing == 0) cache.trim(v);
+        return v;
     }
 
-    private void getPersistenceInstances() {
-        if (manager.getRegion(VESSEL_REGION) == null) manager.addRegion(VESSEL_REGION);
-        Atom atom = manager.getRegion(VESSEL_REGION);
-        atom.getItems().stream()
-                .map(atom::getItem)
-                .forEach(c -> {
-                    if (c.size() != Vessel.ENCODE_FIELD_AMOUNT) {
-                        System.err.println("WARNING: Corrupt vessel instance found: " + c + "\nExpected " +
-                                Vessel.ENCODE_FIELD_AMOUNT + " fields, got " + c.size());
-                        return;
-                    }
-                    vessels.add(new Vessel(this, new LinkedList<>(c)));
-                });
+    /** Materializes every pending object of a region. These aren't trimmed right away, since they're about to be
+     * listed anyway.
+     */
+    private <V extends KSPObject> void materializeAll(LazyRegion<V> region, Registry<V> registry) {
+        if (region == null || region.size() == 0) return;
+        materializing++;
+        try {
+            for (String key : region.keys()) materialize(region, registry, key);
+        } finally {
+            materializing--;
+        }
     }
 
-    private void getPersistenceConcepts() {
-        if (manager.getRegion(CONCEPT_REGION) == null) manager.addRegion(CONCEPT_REGION);
-        Atom atom = manager.getRegion(CONCEPT_REGION);
-        atom.getItems().stream()
-                .map(atom::getItem)
-                .forEach(c -> {
+    private <V extends KSPObject> V lookup(V found, LazyRegion<V> region, Registry<V> registry, String key) {
+        if (region == null) return found;
+        if (found != null) {
+            cache.touch(found);
+            return found;
+        }
+        return materialize(region, registry, key);
+    }
 
-                    if (c.size() != Concept.ENCODE_FIELD_AMOUNT) {
-                        System.err.println("WARNING: Corrupt vessel concept found: " + c + "\nExpected " +
-                                Concept.ENCODE_FIELD_AMOUNT + " fields, got " + c.size());
-                        return;
-                    }
-                    concepts.add(new Concept(this, new LinkedList<>(c)));
-                });
+    // Locking
+
+    /** Runs an operation that changes the controller, once every other one is done. Snapshots aren't taken here:
+     * the first reader listing a registry after it changed takes its snapshot, so many changes in a row cost nothing
+     * until someone looks.
+     */
+    private <T> T write(Supplier<T> operation) {
+        if (writer == Thread.currentThread()) return operation.get();
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        try {
+            settle();
+            return operation.get();
+        } finally {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
     }
 
-    private void getPersistenceKerbals() {
-        if (manager.getRegion(KERBAL_REGION) == null) manager.addRegion(KERBAL_REGION);
-        Atom atom = manager.getRegion(KERBAL_REGION);
-        atom.getItems().stream()
-                .map(atom::getItem)
-                .forEach(c -> {
-                    if (c.size() != Kerbal.ENCODE_FIELD_AMOUNT) {
-                        System.err.println("WARNING: Corrupt kerbal found: " + c + "\nExpected " +
-                                Kerbal.ENCODE_FIELD_AMOUNT + " fields, got " + c.size());
-                        return;
-                    }
-                    Kerbal k = new Kerbal(this, new LinkedList<>(c));
-                    kerbals.add(k);
-                });
+    private void write(Runnable operation) {
+        write(() -> {
+            operation.run();
+            return null;
+        });
     }
 
-    private void getPersistenceMissions() {
-        if (manager.getRegion(MISSION_REGION) == null) manager.addRegion(MISSION_REGION);
-        Atom atom = manager.getRegion(MISSION_REGION);
-        atom.getItems().stream()
-                .map(atom::getItem)
-                .forEach(c -> {
-                    if (c.size() != Mission.ENCODE_FIELD_AMOUNT) {
-                        System.err.println("WARNING: Corrupt mission found: " + c + "\nExpected "
-                                + Mission.ENCODE_FIELD_AMOUNT + " fields, got " + c.size());
-                        return;
-                    }
-                    missions.add(new Mission(this, new LinkedList<>(c)));
-                });
+    /** Runs a lookup that doesn't change anything, under the read lock so that it never sees the controller halfway
+     * through a change. Lookups decode and evict objects in lazy mode, which makes them writes.
+     */
+    private <T> T read(Supplier<T> lookup) {
+        if (writer == Thread.currentThread()) return lookup.get();
+        if (mode == LoadMode.LAZY) return write(lookup);
+        long stamp = lock.readLock();
+        try {
+            return lookup.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Returns the current snapshot of a registry, without decoding anything.
+     */
+    private <V extends KSPObject> Snapshot<V> snapshot(Registry<V> registry) {
+        if (writer == Thread.currentThread()) return registry.snapshot();
+        long stamp = lock.tryOptimisticRead();
+        Snapshot<V> ret = registry.published();
+        if (ret != null && lock.validate(stamp)) return ret;
+        // Taken concurrently by every reader that missed it, all of them build the same one
+        stamp = lock.readLock();
+        try {
+            return registry.snapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Marks a materialized object as recently used, so it isn't the next one evicted. Does nothing unless
+     * loading lazily.
+     */
+    public void touch(KSPObject object) {
+        if (mode == LoadMode.LAZY) write(() -> cache.touch(object));
+    }
+
+    /** Changes the amount of objects kept decoded in lazy mode. Objects that are referenced or modified aren't
+     * evicted, so in a linked career the actual amount is usually much higher: this isn't a bound on memory.
+     */
+    public void setCacheCapacity(int capacity) {
+        write(() -> {
+            cache.setCapacity(capacity);
+            if (materializing == 0) cache.trim(null);
+        });
+    }
+
+    /** Returns the amount of stored records that haven't been decoded yet.
+     */
+    public int getPendingCount() {
+        if (mode != LoadMode.LAZY) return 0;
+        return read(() -> lazyKerbals.size() + lazyMissions.size() + lazyConcepts.size() + lazyVessels.size() + lazyCrashed.size());
+    }
+
+    /** Applies every journaled change on top of the regions read from the database. The changes aren't saved, and
+     * the journal is kept until the next save.
+     */
+    private void replay() {
+        replayed = 0;
+        if (journal == null) return;
+        List<Journal.Batch> batches;
+        try {
+            batches = journal.read();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (Journal.Batch b : batches) {
+            for (Journal.Entry e : b.entries()) {
+                Region region = getRegion(e.region());
+                if (e.isRemoval()) region.removeItem(e.key());
+                else if (!region.replaceItem(e.key(), e.fields())) region.addItem(e.key(), e.fields());
+            }
+            replayed++;
+        }
+        replayUnsaved = replayed != 0;
+    }
+
+    /** Journals everything changed since the last call, as a single batch. Called at the end of every operation.
+     */
+    private void record(String operation) {
+        List<Journal.Entry> entries = new ArrayList<>(unrecordedRemovals);
+        for (KSPObject o : unrecorded) {
+            String region = regionOf(o);
+            if (region == null) continue; // Deleted since
+            if (o.getStorageKey() == null) o.setStorageKey(Long.toString(nextKey++));
+            entries.add(Journal.Entry.put(region, o.getStorageKey(), o.toStorableCollection()));
+            o.markRecorded();
+        }
+        if (text != null) textChanged.addAll(unrecorded); // Including the deleted ones
+        unrecorded.clear();
+        unrecordedRemovals.clear();
+        if (entries.isEmpty()) return;
+        remember(operation, entries);
+        if (journal == null) return;
+
+        try {
+            journal.append(operation, entries);
+            if (journal.size() > JOURNAL_COMPACTION_THRESHOLD) compact();
+        } catch (IOException e) {
+            System.err.println("WARNING: Unable to journal \"" + operation + "\", changes will be lost unless saved");
+            e.printStackTrace();
+        }
+    }
+
+    /** Adds an operation to the undo history, and keeps the records it produced as the latest ones.
+     */
+    private void remember(String operation, List<Journal.Entry> entries) {
+        List<UndoLog.Change> changes = new ArrayList<>(entries.size());
+        for (Journal.Entry e : entries) {
+            StoredKey key = new StoredKey(e.region(), e.key());
+            Collection<String> after = e.isRemoval() ? null : e.fields();
+            changes.add(new UndoLog.Change(e.region(), e.key(), latest(key), after));
+            recorded.put(key, after);
+        }
+        if (!rewinding) history.add(operation, changes);
+    }
+
+    private Collection<String> latest(StoredKey key) {
+        if (recorded.containsKey(key)) return recorded.get(key);
+        if (saving != null && saving.recorded().containsKey(key)) return saving.recorded().get(key);
+        return getRegion(key.region()).getItem(key.key());
+    }
+
+    /** Folds the journal into its checkpoint in the background, keeping only the latest record of every key. The
+     * database isn't touched, so the changes are still unsaved, and can still be discarded.
+     * <p>
+     * Skipped while a save is being written or a compaction is running, the next operation tries again.
+     */
+    private void compact() throws IOException {
+        if (busy()) return;
+        journal.rotate();
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                journal.checkpoint();
+            } catch (IOException e) {
+                // The old segment is kept, and will be replayed (or compacted again) later
+                System.err.println("WARNING: Journal compaction failed");
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** Waits for the save being written, and for the journal compaction running, if any, then settles the save.
+     */
+    private void awaitWrite() {
+        if (pendingCompaction != null) await(pendingCompaction);
+        if (saving != null) saving.save().await();
+        settle();
+    }
+
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Returns true while a save is being written, or the journal is being compacted.
+     */
+    private boolean busy() {
+        settle();
+        if (pendingCompaction != null && pendingCompaction.isDone()) pendingCompaction = null;
+        return saving != null || pendingCompaction != null;
+    }
+
+    /** Finishes the save once it's been written. If it succeeded, its records go into the regions, and the objects
+     * it stored are clean unless they changed since. If it failed, everything it took is unsaved again, so it can be
+     * saved again or discarded. Does nothing while it's still being written.
+     */
+    private void settle() {
+        if (saving == null || !saving.save().isDone()) return;
+        Saving s = saving;
+        saving = null;
+        if (s.save().isWritten()) {
+            for (Journal.Entry e : s.records()) {
+                Region region = getRegion(e.region());
+                if (e.isRemoval()) region.removeItem(e.key());
+                else if (!region.replaceItem(e.key(), e.fields())) region.addItem(e.key(), e.fields());
+            }
+            for (KSPObject o : s.objects()) if (!unsaved.contains(o)) o.markClean();
+            replayUnsaved = false;
+            return;
+        }
+        unsaved.addAll(s.objects());
+        s.removals().forEach((region, keys) -> removals.computeIfAbsent(region, r -> new HashSet<>()).addAll(keys));
+        s.recorded().forEach(recorded::putIfAbsent); // Newer ones stay
+    }
+
+    /** Returns the amount of journaled operations recovered during the last load.
+     */
+    public int getReplayedCount() {
+        return read(() -> replayed);
     }
 
+    private String regionOf(KSPObject object) {
+        if (object instanceof Kerbal k) return kerbals.contains(k) ? KERBAL_REGION : null;
+        if (object instanceof Mission m) return missions.contains(m) ? MISSION_REGION : null;
+        if (object instanceof Concept c) return concepts.contains(c) ? CONCEPT_REGION : null;
+        if (object instanceof Vessel v) {
+            if (vessels.contains(v)) return VESSEL_REGION;
+            if (crashedVessels.contains(v)) return CRASHED_REGION;
+        }
+        return null;
+    }
+
+    @Override
+    public void changed(KSPObject object) {
+        write(() -> {
+            Runnable revive = evicted.remove(object);
+            if (revive != null) revive.run();
+            unsaved.add(object);
+            unrecorded.add(object);
+            if (text != null) textChanged.add(object);
+        });
+    }
+
+    private List<StoredRecord> getRecords(String name) {
+        Region region = getRegion(name);
+        List<StoredRecord> ret = new ArrayList<>(region.getSize());
+        for (String k : region.getItems()) {
+            ret.add(new StoredRecord(k, region.getItem(k)));
+            // Surrogate keys are numbers, anything else is left alone
+            try {
+                nextKey = Math.max(nextKey, Long.parseLong(k) + 1);
+            } catch (NumberFormatException ignored) { }
+        }
+        return ret;
+    }
+
+    private Region getRegion(String region) {
+        return backend.getRegion(region);
+    }
+
+    /** Wraps a decoder so that decoded objects remember where they're stored, and start out clean.
+     */
+    private static <T extends KSPObject> Function<StoredRecord, T> stored(Function<Collection<String>, T> decoder) {
+        return r -> {
+            T t = decoder.apply(r.fields());
+            if (t != null) {
+                t.setStorageKey(r.key());
+                t.markClean();
+            }
+            return t;
+        };
+    }
+
+    /** Wraps a decoder with the schema check, warning about (and skipping) corrupt records.
+     */
+    private static <F extends Enum<F>, T> Function<Collection<String>, T> checked(String name, Schema<F> schema, Function<StoredFields<F>, T> decoder) {
+        return c -> {
+            StoredFields<F> fields = schema.read(c);
+            if (fields == null) {
+                System.err.println("WARNING: Corrupt " + name + " found: " + c + "\nExpected " +
+                        schema.size() + " fields, got " + c.size());
+                return null;
+            }
+            return decoder.apply(fields);
+        };
+    }
+
+    private <T> List<T> timed(String region, Supplier<List<T>> decode) {
+        long start = System.nanoTime();
+        List<T> ret = decode.get();
+        Duration time = Duration.ofNanos(System.nanoTime() - start);
+        synchronized (decodeTimes) {
+            decodeTimes.put(region, time);
+        }
+        return ret;
+    }
+
+    /** Returns how long each region took to decode during the last load. In parallel mode the regions overlap, so
+     * the times don't add up to the total load time.
+     */
+    public Map<String, Duration> getDecodeTimes() {
+        synchronized (decodeTimes) {
+            return new LinkedHashMap<>(decodeTimes);
+        }
+    }
 
     public void createKerbalHired(String name, boolean isMale, boolean badass, Job job, KSPDate hiringDate, String description) {
-        Kerbal k = new Kerbal(this, name, isMale, badass, job, "Hired", hiringDate);
-        k.setDescription(description);
-        addKerbal(k);
-        k.ready();
+        write(() -> {
+            Kerbal k = new Kerbal(this, name, isMale, badass, job, "Hired", hiringDate);
+            k.setDescription(description);
+            addKerbal(k);
+            k.ready();
+            record("Hire " + name);
+        });
     }
 
     public void createMission(String name, String description, Vessel vessel, Map<Kerbal, String> crew, KSPDate missionStart) {
-        Mission m = new Mission(this, name, vessel.getId(), crew, missionStart);
-        for (Kerbal k : crew.keySet()) k.missionStart(m);
-        m.setDescription(description);
-        addMission(m);
-        m.ready();
+        write(() -> {
+            Mission m = new Mission(this, name, vessel.getId(), crew, missionStart);
+            for (Kerbal k : crew.keySet()) k.missionStart(m);
+            m.setDescription(description);
+            addMission(m);
+            m.ready();
+            record("Start mission " + name);
+        });
     }
 
     public void createMission(String name, String description, Concept vessel, Map<Kerbal, String> crew, KSPDate missionStart, Set<Vessel> vessels) {
-        Mission m = new Mission(this, name, vessel, crew, missionStart, vessels);
-        for (Kerbal k : crew.keySet()) k.missionStart(m);
-        m.setDescription(description);
-        addMission(m);
-        m.ready();
+        write(() -> {
+            Mission m = new Mission(this, name, vessel, crew, missionStart, vessels);
+            for (Kerbal k : crew.keySet()) k.missionStart(m);
+            m.setDescription(description);
+            addMission(m);
+            m.ready();
+            record("Start mission " + name);
+        });
     }
 
     public void createConcept(String name, VesselType type, Concept redesign, KSPDate creationDate, Destination[] destinations, VesselProperty... properties) {
-        Concept vc;
-        // From scratch, type != null
-        if (redesign == null) vc = new Concept(this, name, type, creationDate, destinations, properties);
-        // Inspired, type == null;
-        else vc = new Concept(this, name, redesign, creationDate, destinations, properties);
-        addConcept(vc);
-        vc.ready();
+        write(() -> {
+            Concept vc;
+            // From scratch, type != null
+            if (redesign == null) vc = new Concept(this, name, type, creationDate, destinations, properties);
+            // Inspired, type == null;
+            else vc = new Concept(this, name, redesign, creationDate, destinations, properties);
+            addConcept(vc);
+            vc.ready();
+            record("Create concept " + name);
+        });
     }
 
     public void delete(KSPObject object, String status) {
-        object.fireDeletionEvent(status);
-        if (object instanceof Kerbal k ) kerbals.remove(k);
-        else if (object instanceof Mission m ) missions.remove(m);
-        else if (object instanceof Concept vc) concepts.remove(vc);
-        else if (object instanceof Vessel vi) {
-            vessels.remove(vi); // One of these will work, you know
-            crashedVessels.remove(vi);
+        write(() -> {
+            materializeReferrers(object);
+            object.fireDeletionEvent(status);
+            if (object instanceof Kerbal k ) kerbals.remove(k);
+            else if (object instanceof Mission m ) missions.remove(m);
+            else if (object instanceof Concept vc) concepts.remove(vc);
+            else if (object instanceof Vessel vi) {
+                if (vessels.remove(vi)) unstore(VESSEL_REGION, vi);
+                else if (crashedVessels.remove(vi)) unstore(CRASHED_REGION, vi);
+            }
+            if (object instanceof Kerbal) unstore(KERBAL_REGION, object);
+            else if (object instanceof Mission) unstore(MISSION_REGION, object);
+            else if (object instanceof Concept) unstore(CONCEPT_REGION, object);
+            // Referrers were just told, nothing points to it anymore
+            object.unlink();
+            references.forget(object);
+            cache.forget(object);
+            if (text != null) textChanged.add(object);
+            record("Delete " + object.getClass().getSimpleName().toLowerCase(Locale.ROOT));
+        });
+    }
+
+    /** Materializes every pending record that mentions the object, in lazy mode. Those were never linked, so they
+     * wouldn't hear about the object's deletion, and their records would keep pointing to it. Records are matched by
+     * text, so a few more than needed may be decoded.
+     */
+    private void materializeReferrers(KSPObject object) {
+        if (mode != LoadMode.LAZY) return;
+        String key = lookupKey(object);
+        if (key == null) return;
+        materializing++;
+        try {
+            materializeMentioning(lazyKerbals, kerbals, key);
+            materializeMentioning(lazyMissions, missions, key);
+            materializeMentioning(lazyConcepts, concepts, key);
+            materializeMentioning(lazyVessels, vessels, key);
+            materializeMentioning(lazyCrashed, crashedVessels, key);
+        } finally {
+            materializing--;
         }
     }
 
+    private <V extends KSPObject> void materializeMentioning(LazyRegion<V> region, Registry<V> registry, String text) {
+        for (String key : region.mentioning(text)) materialize(region, registry, key);
+    }
+
+    /** Changes a field of an object, journaling it as an operation of its own so that it can be undone.
+     */
+    @Override
+    public boolean edit(Editable object, int index, Object value) {
+        return write(() -> {
+            if (!object.setField(index, value)) return false;
+            record("Edit " + object.getTextRepresentation());
+            return true;
+        });
+    }
+
     public long createVessel(Concept concept, Location location, Vessel... vessels) {
-        Vessel vi = new Vessel(this, concept, location, new HashSet<>(Arrays.asList(vessels)));
-        addVessel(vi);
-        vi.ready();
-        return vi.getId();
+        return write(() -> {
+            Vessel vi = new Vessel(this, concept, location, new HashSet<>(Arrays.asList(vessels)));
+            addVessel(vi);
+            vi.ready();
+            record("Create vessel " + vi.getId());
+            return vi.getId();
+        });
+    }
+
+    // Bulk import
+
+    /** Registers an object without linking it, for bulk imports. Every imported object must then be linked at once
+     * through {@link GUIController#linkImported}. Only kerbals, missions and concepts can be imported.
+     * @return false if there's already an object with the same name, in which case it's left out.
+     */
+    public boolean insert(KSPObject object) {
+        return !insertAll(List.of(object)).isEmpty();
     }
 
+    /** Same as {@link GUIController#insert}, for many objects at once. They're all added in a single change, so
+     * nothing else gets in between, and listing the registries afterwards copies them once instead of once per object.
+     * @return The objects added, in order. Those with the same name as one already there, or as an earlier one of
+     * these, are left out.
+     */
+    public List<KSPObject> insertAll(Collection<? extends KSPObject> objects) {
+        return write(() -> {
+            List<KSPObject> ret = new ArrayList<>(objects.size());
+            for (KSPObject object : objects) {
+                if (object instanceof Kerbal k) {
+                    if (getKerbal(k.getName()) != null) continue;
+                    kerbals.add(k);
+                } else if (object instanceof Mission m) {
+                    if (getMission(m.getName()) != null) continue;
+                    missions.add(m);
+                } else if (object instanceof Concept c) {
+                    if (getConcept(c.getName()) != null) continue;
+                    concepts.add(c);
+                } else throw new IllegalArgumentException("Can't import " + object.getClass().getSimpleName());
+                changed(object);
+                ret.add(object);
+            }
+            return ret;
+        });
+    }
+
+    /** Links the objects added through {@link GUIController#insert} in a single pass, and journals them as a single
+     * operation. Objects that were already there and pointed to something missing are linked again, in case the
+     * import provided it.
+     * @return The references that couldn't be resolved. Always empty in lazy mode, same as {@link GUIController#link()}.
+     */
+    public LinkReport linkImported(Collection<? extends KSPObject> imported, String operation) {
+        return write(() -> relink(imported, operation));
+    }
+
+    private LinkReport relink(Collection<? extends KSPObject> imported, String operation) {
+        Set<KSPObject> relink = new LinkedHashSet<>();
+        for (LinkReport.Unresolved u : lastLinkReport.getUnresolved()) {
+            // Nested objects are linked through the one they're stored in
+            KSPObject o = u.source();
+            while (o.getOwner() != null) o = o.getOwner();
+            if (regionOf(o) != null) relink.add(o);
+        }
+        imported.forEach(relink::remove);
+        for (KSPObject o : relink) o.unlink();
+
+        LinkReport report;
+        if (mode == LoadMode.LAZY) {
+            materializing++;
+            try {
+                for (KSPObject o : imported) o.link(this);
+                for (KSPObject o : relink) o.link(this);
+            } finally {
+                materializing--;
+            }
+            cache.trim(null);
+            report = new LinkReport();
+        } else {
+            Linker linker = new Linker(kerbals, missions, concepts, vessels, crashedVessels);
+            report = linker.link(imported, relink);
+            lastLinkReport = report;
+        }
+        record(operation);
+        return report;
+    }
+
+    /** Writes every new or changed object to storage, and removes the records of deleted ones. Only changed objects
+     * are encoded again. The amount of records encoded is available through {@link GUIController#getSaveCounts()}.
+     * <p>
+     * Blocks until the file is written, see {@link GUIController#prepareSave()} to write it in the background.
+     */
     public boolean saveChanges() {
-        int count = 0; // Keys are unused, simple number
-
-        if (manager.getRegion(KERBAL_REGION) == null) manager.addRegion(KERBAL_REGION);
-        Atom atom = manager.getRegion(KERBAL_REGION);
-        // Remove all previous items
-        for (Key key : atom.getItems()) atom.removeItem(key);
-        // Add everything again
-        for (Kerbal k : kerbals) {
-            atom.addItem(new Key(Integer.toString(count)), k.toStorableCollection());
-            count++;
+        try {
+            prepareSave().write(n -> {});
+            write(this::settle);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-        manager.replaceRegion(atom);
+    }
 
-        if (manager.getRegion(MISSION_REGION) == null) manager.addRegion(MISSION_REGION);
-        atom = manager.getRegion(MISSION_REGION);
-        // Remove all previous items
-        for (Key key : atom.getItems()) atom.removeItem(key);
-        // Add everything again
-        for (Mission m : missions) {
-            atom.addItem(new Key(Integer.toString(count)), m.toStorableCollection());
-            count++;
+    /** First half of a save: every region is copied, and the changed objects are encoded into the copies. The copy is
+     * then written with {@link PendingSave#write}, on any thread, while the controller keeps being used. Changes made
+     * in the meantime go to a fresh journal segment.
+     * <p>
+     * The regions and the changed objects are only updated once the copy is written, by the next operation. Until
+     * then, and if writing fails, the changes are still unsaved and can be discarded.
+     * <p>
+     * Only one save is written at a time. If the previous one, or a journal compaction, is still running, this waits
+     * for it without holding the controller. Copying does hold it, so this is better called off the event thread.
+     */
+    public PendingSave prepareSave() throws IOException {
+        while (true) {
+            Future<?> compaction = read(() -> pendingCompaction);
+            PendingSave previous = read(() -> saving == null ? null : saving.save());
+            if (compaction != null) await(compaction);
+            if (previous != null) previous.await();
+            try {
+                PendingSave save = write(() -> {
+                    if (busy()) return null; // Another one started meanwhile
+                    try {
+                        return prepare();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (save != null) return save;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
         }
-        manager.replaceRegion(atom);
+    }
 
-        if (manager.getRegion(CONCEPT_REGION) == null) manager.addRegion(CONCEPT_REGION);
-        atom = manager.getRegion(CONCEPT_REGION);
-        // Remove all previous items
-        for (Key key : atom.getItems()) atom.removeItem(key);
-        // Add everything again
-        for (Concept m : concepts) {
-            atom.addItem(new Key(Integer.toString(count)), m.toStorableCollection());
-            count++;
+    private PendingSave prepare() throws IOException {
+        record("Save");
+
+        Map<String, Region> copies = new LinkedHashMap<>();
+        Set<String> names = new LinkedHashSet<>(List.of(KERBAL_REGION, MISSION_REGION, CONCEPT_REGION, VESSEL_REGION, CRASHED_REGION));
+        names.addAll(backend.getRegions());
+        Set<String> seen = new HashSet<>();
+        for (String name : names) {
+            if (!seen.add(name.toUpperCase(Locale.ROOT))) continue; // Stored names are upper case
+            copies.put(name, getRegion(name).copy());
         }
-        manager.replaceRegion(atom);
+        List<Journal.Entry> records = storeAll(copies);
+
+        if (journal != null) journal.rotate();
+        PendingSave save = new PendingSave(backend, new ArrayList<>(copies.values()), journal);
+        // Taken out until the save settles, so changes made meanwhile are told apart
+        saving = new Saving(save, new ArrayList<>(unsaved), new HashMap<>(removals), new HashMap<>(recorded), records);
+        unsaved.clear();
+        removals.clear();
+        recorded.clear();
+        return save;
+    }
+
+    /** Encodes the changed objects of every registry into copies of their regions.
+     * @return The records written to the copies, which go into the regions once they're saved
+     */
+    private List<Journal.Entry> storeAll(Map<String, Region> copies) {
+        List<Journal.Entry> records = new ArrayList<>();
+        saveCounts.clear();
+        saveCounts.put(KERBAL_REGION, store(copies.get(KERBAL_REGION), KERBAL_REGION, kerbals, records));
+        saveCounts.put(MISSION_REGION, store(copies.get(MISSION_REGION), MISSION_REGION, missions, records));
+        saveCounts.put(CONCEPT_REGION, store(copies.get(CONCEPT_REGION), CONCEPT_REGION, concepts, records));
+        saveCounts.put(VESSEL_REGION, store(copies.get(VESSEL_REGION), VESSEL_REGION, vessels, records));
+        saveCounts.put(CRASHED_REGION, store(copies.get(CRASHED_REGION), CRASHED_REGION, crashedVessels, records));
+        return records;
+    }
 
-        if (manager.getRegion(VESSEL_REGION) == null) manager.addRegion(VESSEL_REGION);
-        atom = manager.getRegion(VESSEL_REGION);
-        // Remove all previous items
-        for (Key key : atom.getItems()) atom.removeItem(key);
-        // Add everything again
-        for (Vessel m : vessels) {
-            atom.addItem(new Key(Integer.toString(count)), m.toStorableCollection());
+    /** Updates a copy of a region with the changed objects of a registry, and the pending removals.
+     * @return Amount of records added, replaced or removed.
+     */
+    private int store(Region stored, String region, Registry<? extends KSPObject> registry, List<Journal.Entry> records) {
+        Set<String> removed = removals.get(region);
+        List<KSPObject> dirty = new ArrayList<>();
+        for (KSPObject o : unsaved) if (registry.contains(o)) dirty.add(o);
+        if (dirty.isEmpty() && removed == null) return 0;
+
+        int count = 0;
+        if (removed != null) for (String key : removed) {
+            if (!stored.removeItem(key)) continue;
+            records.add(Journal.Entry.remove(region, key));
             count++;
         }
-        manager.replaceRegion(atom);
-
-        if (manager.getRegion(CRASHED_REGION) == null) manager.addRegion(CRASHED_REGION);
-        atom = manager.getRegion(CRASHED_REGION);
-        // Remove all previous items
-        for (Key key : atom.getItems()) atom.removeItem(key);
-        // Add everything again
-        for (Vessel m : crashedVessels) {
-            atom.addItem(new Key(Integer.toString(count)), m.toStorableCollection());
+        for (KSPObject o : dirty) {
+            if (o.getStorageKey() == null) o.setStorageKey(Long.toString(nextKey++));
+            String key = o.getStorageKey();
+            Collection<String> record = o.toStorableCollection();
+            if (!stored.replaceItem(key, record)) stored.addItem(key, record);
+            records.add(Journal.Entry.put(region, key, record));
             count++;
         }
-        manager.replaceRegion(atom);
+        return count;
+    }
 
+    /** Schedules the removal of an object's record from a region on the next save.
+     */
+    private void unstore(String region, KSPObject object) {
+        if (object.getStorageKey() != null) unstore(region, object.getStorageKey());
+    }
 
-        try {
-            manager.save();
+    private void unstore(String region, String key) {
+        removals.computeIfAbsent(region, r -> new HashSet<>()).add(key);
+        unrecordedRemovals.add(Journal.Entry.remove(region, key));
+    }
+
+    /** Returns the amount of records written to each region during the last save. Untouched regions count 0.
+     */
+    public Map<String, Integer> getSaveCounts() {
+        return read(() -> new LinkedHashMap<>(saveCounts));
+    }
+
+    /** Drops every change made since the last save, including the journaled ones. The undo history goes as well.
+     * <p>
+     * The regions always hold the last saved record of every object, so only the objects changed, created or deleted
+     * since then are decoded again. Everything else is left as is. The whole database is only read again if the
+     * regions hold changes replayed from the journal on startup.
+     */
+    public void discard() {
+        write(this::dropChanges);
+    }
+
+    private void dropChanges() {
+        awaitWrite();
+        if (journal != null) {
+            try {
+                journal.truncate();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        history.clear();
+        recorded.clear();
+        if (replayUnsaved) reload();
+        else revert();
+    }
+
+    /** Puts back the saved version of every object changed since the last save.
+     */
+    private void revert() {
+        // Saved records to bring back, by region: whatever was changed or deleted
+        Map<String, Set<String>> restore = new HashMap<>();
+        removals.forEach((region, keys) -> restore.computeIfAbsent(region, r -> new LinkedHashSet<>()).addAll(keys));
+        Set<KSPObject> relink = new LinkedHashSet<>();
+        Set<KSPObject> dropped = new HashSet<>(unsaved);
+        for (KSPObject o : dropped) {
+            String region = regionOf(o);
+            if (region == null) continue; // Deleted, or new and deleted
+            if (o.getStorageKey() != null) restore.computeIfAbsent(region, r -> new LinkedHashSet<>()).add(o.getStorageKey());
+            drop(o, relink);
+        }
+        relink.removeAll(dropped);
+        removals.clear();
+        unsaved.clear();
+        unrecorded.clear();
+        unrecordedRemovals.clear();
+
+        List<KSPObject> restored = new ArrayList<>();
+        restored.addAll(restore(KERBAL_REGION, restore, lazyKerbals, kerbals, kerbalDecoder));
+        restored.addAll(restore(MISSION_REGION, restore, lazyMissions, missions, missionDecoder));
+        restored.addAll(restore(CONCEPT_REGION, restore, lazyConcepts, concepts, conceptDecoder));
+        restored.addAll(restore(VESSEL_REGION, restore, lazyVessels, vessels, vesselDecoder));
+        restored.addAll(restore(CRASHED_REGION, restore, lazyCrashed, crashedVessels, crashedDecoder));
+        linkAgain(restored, relink);
+    }
+
+    /** Takes an object out of memory, to be replaced by another version of it. Objects referring to it are added to
+     * the given set, since they'll need to be linked again.
+     */
+    private void drop(KSPObject object, Set<KSPObject> relink) {
+        relink.addAll(references.getReferrers(object, KSPObject.class));
+        unregister(object);
+        object.unlink();
+        references.forget(object);
+        cache.forget(object);
+        unsaved.remove(object);
+        unrecorded.remove(object);
+        if (text != null) textChanged.add(object); // Its replacement is found through its key
+    }
+
+    /** Links the objects that replaced dropped ones, and the ones that referred to what was dropped.
+     */
+    private void linkAgain(Collection<KSPObject> restored, Set<KSPObject> relink) {
+        if (text != null) textChanged.addAll(restored);
+        for (KSPObject o : relink) o.unlink();
+        if (mode == LoadMode.LAZY) {
+            materializing++;
+            try {
+                for (KSPObject o : restored) o.link(this);
+                for (KSPObject o : relink) o.link(this);
+            } finally {
+                materializing--;
+            }
+            cache.trim(null);
+        } else {
+            LinkReport report = new Linker(kerbals, missions, concepts, vessels, crashedVessels).link(restored, relink);
+            if (!report.isEmpty()) System.err.println("WARNING: Unresolved references found: " + report);
+        }
+    }
+
+    /** Brings back the saved records of a region. In lazy mode they're only put back in line to be decoded.
+     * @return The objects decoded, not linked yet
+     */
+    private <V extends KSPObject> List<V> restore(String region, Map<String, Set<String>> restore, LazyRegion<V> lazy, Registry<V> registry, Function<StoredRecord, V> decoder) {
+        Set<String> keys = restore.get(region);
+        if (keys == null) return List.of();
+        Region stored = getRegion(region);
+        List<V> ret = new ArrayList<>();
+        for (String key : keys) {
+            Collection<String> fields = stored.getItem(key);
+            if (fields == null) continue; // Never saved
+            StoredRecord record = new StoredRecord(key, fields);
+            if (lazy != null && lazy.put(record)) continue;
+            V v = decoder.apply(record);
+            if (v == null) continue;
+            registry.add(v);
+            ret.add(v);
+        }
+        return ret;
+    }
+
+    // Undo and redo
+
+    /** Undoes the last operation. Only the objects it changed are decoded again, from their records before it.
+     * @return false if there's nothing to undo.
+     */
+    public boolean undo() {
+        return write(() -> {
+            UndoLog.Entry e = history.undo();
+            if (e == null) return false;
+            List<UndoLog.Change> changes = new ArrayList<>(e.changes());
+            Collections.reverse(changes);
+            rewind(changes, true, "Undo " + e.operation());
+            return true;
+        });
+    }
+
+    /** Redoes the last undone operation, as long as nothing else was done since.
+     * @return false if there's nothing to redo.
+     */
+    public boolean redo() {
+        return write(() -> {
+            UndoLog.Entry e = history.redo();
+            if (e == null) return false;
+            rewind(e.changes(), false, "Redo " + e.operation());
             return true;
+        });
+    }
+
+    /** Returns the name of the operation {@link GUIController#undo()} would undo, or null if there's none.
+     */
+    public String getUndoOperation() {
+        return read(history::peekUndo);
+    }
+
+    public String getRedoOperation() {
+        return read(history::peekRedo);
+    }
+
+    /** Changes the memory the undo history may take, in bytes. Older operations are coalesced, or forgotten, to fit.
+     */
+    public void setUndoBudget(long bytes) {
+        write(() -> history.setBudget(bytes));
+    }
+
+    /** Returns the approximate memory taken by the undo history, in bytes.
+     */
+    public long getUndoSize() {
+        return read(history::getSize);
+    }
+
+    /** Puts every changed record in its state from before (or after) the operation. The result is a regular change:
+     * it's journaled, and saved on the next save.
+     */
+    private void rewind(List<UndoLog.Change> changes, boolean backwards, String operation) {
+        Set<KSPObject> relink = new LinkedHashSet<>();
+        Set<KSPObject> dropped = new HashSet<>();
+        List<KSPObject> restored = new ArrayList<>();
+        for (UndoLog.Change c : changes) {
+            Collection<String> from = backwards ? c.after() : c.before();
+            Collection<String> to = backwards ? c.before() : c.after();
+            KSPObject current = from == null ? null : find(c.region(), from, c.key());
+            if (current != null) {
+                drop(current, relink);
+                dropped.add(current);
+                restored.remove(current);
+            }
+            if (to == null) {
+                unstore(c.region(), c.key());
+                continue;
+            }
+            KSPObject o = decode(c.region(), new StoredRecord(c.key(), to));
+            if (o == null) continue;
+            register(c.region(), o);
+            o.markDirty(); // Decoded objects start clean, this one isn't saved yet
+            restored.add(o);
+            Set<String> removed = removals.get(c.region());
+            if (removed != null) removed.remove(c.key());
+        }
+        relink.removeAll(dropped);
+        linkAgain(restored, relink);
+
+        rewinding = true;
+        try {
+            record(operation);
+        } finally {
+            rewinding = false;
+        }
+    }
+
+    /** Returns the object currently in memory for a record, or null if there's none.
+     */
+    private KSPObject find(String region, Collection<String> record, String key) {
+        KSPObject ret;
+        try {
+            ret = switch (region) {
+                case KERBAL_REGION -> getKerbal(fieldAt(record, Kerbal.SCHEMA.indexOf(Kerbal.Stored.NAME)));
+                case MISSION_REGION -> getMission(fieldAt(record, Mission.SCHEMA.indexOf(Mission.Stored.NAME)));
+                case CONCEPT_REGION -> getConcept(fieldAt(record, Concept.SCHEMA.indexOf(Concept.Stored.NAME)));
+                case VESSEL_REGION -> getInstance(Long.parseLong(fieldAt(record, Vessel.SCHEMA.indexOf(Vessel.Stored.ID))));
+                case CRASHED_REGION -> getCrashedInstance(Long.parseLong(fieldAt(record, Vessel.SCHEMA.indexOf(Vessel.Stored.ID))));
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // Names can be shared, make sure it's the same object
+        return ret != null && key.equals(ret.getStorageKey()) ? ret : null;
+    }
+
+    private static String fieldAt(Collection<String> record, int index) {
+        if (record.size() <= index) return null;
+        if (record instanceof List<String> l) return l.get(index);
+        Iterator<String> it = record.iterator();
+        for (int i = 0; i != index; i++) it.next();
+        return it.next();
+    }
+
+    private KSPObject decode(String region, StoredRecord record) {
+        return switch (region) {
+            case KERBAL_REGION -> kerbalDecoder.apply(record);
+            case MISSION_REGION -> missionDecoder.apply(record);
+            case CONCEPT_REGION -> conceptDecoder.apply(record);
+            case VESSEL_REGION -> vesselDecoder.apply(record);
+            case CRASHED_REGION -> crashedDecoder.apply(record);
+            default -> null;
+        };
+    }
+
+    private void register(String region, KSPObject object) {
+        switch (region) {
+            case KERBAL_REGION -> kerbals.add((Kerbal) object);
+            case MISSION_REGION -> missions.add((Mission) object);
+            case CONCEPT_REGION -> concepts.add((Concept) object);
+            case VESSEL_REGION -> vessels.add((Vessel) object);
+            case CRASHED_REGION -> crashedVessels.add((Vessel) object);
+        }
+    }
+
+    private void unregister(KSPObject object) {
+        if (object instanceof Kerbal k) kerbals.removeValue(k);
+        else if (object instanceof Mission m) missions.removeValue(m);
+        else if (object instanceof Concept c) concepts.removeValue(c);
+        else if (object instanceof Vessel v) {
+            if (!vessels.removeValue(v)) crashedVessels.removeValue(v);
+        }
+    }
+
+    /** Reads the whole database again.
+     */
+    private void reload() {
+        try {
+            // Regions may hold replayed changes, read them from storage again
+            backend.restore();
         } catch (IOException e) {
             e.printStackTrace();
-            return false;
         }
-    }
 
-    public void discard() {
         // Delete everything
         kerbals.clear();
         missions.clear();
         concepts.clear();
         vessels.clear();
         crashedVessels.clear();
+        cache.clear();
+        evicted.clear();
+        references.clear();
+        text = null; // Built again on the next search
+        textChanged.clear();
+        textKeys.clear();
+        removals.clear();
+        unsaved.clear();
+        unrecorded.clear();
+        unrecordedRemovals.clear();
+        if (mode == LoadMode.LAZY) {
+            lazyKerbals.clear();
+            lazyMissions.clear();
+            lazyConcepts.clear();
+            lazyVessels.clear();
+            lazyCrashed.clear();
+        }
 
-        // Read from manager again
-        getPersistenceKerbals();
-        getPersistenceMissions();
-        getPersistenceConcepts();
-        getPersistenceInstances();
-        getPersistenceCrashedInstances();
+        // Read from the backend again
+        load();
     }
 
     @Override
     public Kerbal getKerbal(String name) {
-        return kerbals.stream().filter(k -> k.getName().equals(name)).findFirst().orElse(null);
+        return read(() -> lookup(kerbals.get(name), lazyKerbals, kerbals, name));
     }
 
     @Override
     public Mission getMission(String name) {
-        return missions.stream().filter(m -> m.getName().equals(name)).findFirst().orElse(null);
+        return read(() -> lookup(missions.get(name), lazyMissions, missions, name));
     }
 
     @Override
     public Concept getConcept(String name) {
-        return concepts.stream().filter(c -> c.getName().equals(name)).findFirst().orElse(null);
+        return read(() -> lookup(concepts.get(name), lazyConcepts, concepts, name));
     }
 
     @Override
     public Vessel getInstance(long id) {
-        return vessels.stream().filter(i -> i.getId() == id).findFirst().orElse(null);
+        return read(() -> lookup(vessels.get(id), lazyVessels, vessels, Long.toString(id)));
     }
 
     @Override
     public Vessel getCrashedInstance(long id) {
-        return crashedVessels.stream().filter(c -> c.getId() == id).findFirst().orElse(null);
+        return read(() -> lookup(crashedVessels.get(id), lazyCrashed, crashedVessels, Long.toString(id)));
+    }
+
+    /** Goes through every object, one region after another. Unlike listing the regions, this doesn't decode every
+     * object at once in lazy mode: each pending record is decoded on its own for the visit, without registering or
+     * linking it, and dropped afterwards. Memory doesn't grow with the career, but those objects are copies, and
+     * mustn't be changed.
+     * @param visitor Receives the region name and the object
+     * @return Amount of objects visited
+     */
+    public int visitAll(BiConsumer<String, KSPObject> visitor) {
+        int count = 0;
+        count += visit(KERBAL_REGION, kerbals, lazyKerbals, this::getKerbal, visitor);
+        count += visit(MISSION_REGION, missions, lazyMissions, this::getMission, visitor);
+        count += visit(CONCEPT_REGION, concepts, lazyConcepts, this::getConcept, visitor);
+        count += visit(VESSEL_REGION, vessels, lazyVessels, id -> getInstance(Long.parseLong(id)), visitor);
+        count += visit(CRASHED_REGION, crashedVessels, lazyCrashed, id -> getCrashedInstance(Long.parseLong(id)), visitor);
+        return count;
+    }
+
+    private <V extends KSPObject> int visit(String region, Registry<V> registry, LazyRegion<V> lazy, Function<String, V> lookup, BiConsumer<String, KSPObject> visitor) {
+        // Keys are collected first. Objects materialized meanwhile are then visited through their key, instead of twice
+        List<String> pending = lazy == null ? List.of() : write(lazy::keys);
+        int count = 0;
+        for (V v : snapshot(registry)) {
+            visitor.accept(region, v);
+            count++;
+        }
+        for (String key : pending) {
+            StoredRecord record = read(() -> lazy.peek(key));
+            V v = record != null ? lazy.decode(record) : lookup.apply(key);
+            if (v == null) continue;
+            visitor.accept(region, v);
+            count++;
+        }
+        return count;
+    }
+
+    // Listing a whole category needs every object of it decoded
+
+    private <V extends KSPObject> Snapshot<V> list(LazyRegion<V> region, Registry<V> registry) {
+        if (region != null && region.size() != 0) write(() -> materializeAll(region, registry));
+        return snapshot(registry);
     }
 
     @Override
-    public Set<Kerbal> getKerbals() {
-        return new HashSet<>(kerbals);
+    public Snapshot<Kerbal> getKerbals() {
+        return list(lazyKerbals, kerbals);
     }
 
     @Override
-    public Set<Mission> getMissions() {
-        return new HashSet<>(missions);
+    public Snapshot<Mission> getMissions() {
+        return list(lazyMissions, missions);
     }
 
     @Override
-    public Set<Concept> getConcepts() {
-        concepts.sort((vc1, vc2) -> {
-            // Different family
-            if (!vc1.getName().equals(vc2.getName())) return vc1.getName().compareTo(vc2.getName());
-            // Same family, refer to iteration
-            return vc2.getIteration() - vc1.getIteration();
-        });
-        return new HashSet<>(concepts);
+    public Snapshot<Concept> getConcepts() {
+        return list(lazyConcepts, concepts);
     }
 
     @Override
-    public Set<Vessel> getVessels() {
-        vessels.sort((vi1, vi2) -> {
-            // Different family
-            if (!vi1.getName().equals(vi2.getName())) return vi1.getName().compareTo(vi2.getName());
-            // Same family, refer to iteration
-            if (vi1.getIteration() != vi2.getIteration()) return vi2.getIteration() - vi1.getIteration();
-            // Same iteration, refer to location
-            if (!vi1.getLocation().getCelestialBody().equals(vi2.getLocation().getCelestialBody())) return vi1.getLocation().getCelestialBody().compareTo(vi2.getLocation().getCelestialBody());
-            // Same location, refer to specific location
-            if (vi1.getLocation().isInSpace() != vi2.getLocation().isInSpace()) return vi1.getLocation().isInSpace() ? 1 : -1; // Vessels in space take priority
-            // Same specific location, apply random order
-            return vi2.hashCode() - vi1.hashCode();
-        });
-        return new HashSet<>(vessels);
+    public Snapshot<Vessel> getVessels() {
+        return list(lazyVessels, vessels);
     }
 
     @Override
-    public Set<Vessel> getCrashedVessels() {
-        return new HashSet<>(crashedVessels);
+    public Snapshot<Vessel> getCrashedVessels() {
+        return list(lazyCrashed, crashedVessels);
+    }
+
+    /** What's listed of a category so far, while it's being decoded in steps.
+     * @param complete True once nothing is left to decode, in which case the snapshot is the whole category
+     */
+    public record Listing<V>(Snapshot<V> snapshot, boolean complete) {}
+
+    /** Decodes at most the given amount of the pending records of a category, and lists what's decoded so far. Each
+     * step is a change of its own, so a large category can be listed bit by bit without holding the controller until
+     * all of it is decoded. Outside lazy mode the first step is already complete.
+     */
+    private <V extends KSPObject> Listing<V> list(LazyRegion<V> region, Registry<V> registry, int amount) {
+        boolean complete = region == null || write(() -> {
+            materializing++;
+            try {
+                for (String key : region.nextKeys(amount)) materialize(region, registry, key);
+            } finally {
+                materializing--;
+            }
+            return region.size() == 0;
+        });
+        return new Listing<>(snapshot(registry), complete);
+    }
+
+    public Listing<Kerbal> getKerbals(int amount) {
+        return list(lazyKerbals, kerbals, amount);
+    }
+
+    public Listing<Mission> getMissions(int amount) {
+        return list(lazyMissions, missions, amount);
+    }
+
+    public Listing<Concept> getConcepts(int amount) {
+        return list(lazyConcepts, concepts, amount);
+    }
+
+    public Listing<Vessel> getVessels(int amount) {
+        return list(lazyVessels, vessels, amount);
+    }
+
+    public Listing<Vessel> getCrashedVessels(int amount) {
+        return list(lazyCrashed, crashedVessels, amount);
     }
 
     @Override
     public void addKerbal(Kerbal kerbal) {
-        kerbal.ready();
-        kerbals.add(kerbal);
+        write(() -> {
+            kerbal.ready();
+            kerbals.add(kerbal);
+            changed(kerbal);
+        });
     }
 
     @Override
     public void addMission(Mission mission) {
-        mission.ready();
-        missions.add(mission);
+        write(() -> {
+            mission.ready();
+            missions.add(mission);
+            changed(mission);
+        });
     }
 
     @Override
     public void addConcept(Concept concept) {
-        concept.ready();
-        concepts.add(concept);
+        write(() -> {
+            concept.ready();
+            concepts.add(concept);
+            changed(concept);
+        });
     }
 
     @Override
     public void addVessel(Vessel instance) {
-        instance.ready();
-        vessels.add(instance);
+        write(() -> {
+            instance.ready();
+            vessels.add(instance);
+            changed(instance);
+        });
     }
 
     @Override
     public void vesselRecovered(Vessel vessel) {
-        vessel.fireDeletionEvent("Recovered lmao");
-        vessels.remove(vessel);
+        write(() -> {
+            vessel.fireDeletionEvent("Recovered lmao");
+            if (vessels.remove(vessel)) unstore(VESSEL_REGION, vessel);
+            vessel.unlink();
+            references.forget(vessel);
+            cache.forget(vessel);
+            if (text != null) textChanged.add(vessel);
+            record("Recover vessel " + vessel.getId());
+        });
     }
 
     @Override
     public void vesselCrashed(Vessel vessel) {
-        vessels.remove(vessel);
-        crashedVessels.add(vessel);
+        write(() -> {
+            // Same key, different region
+            if (vessels.remove(vessel)) unstore(VESSEL_REGION, vessel);
+            crashedVessels.add(vessel);
+            changed(vessel);
+            cache.forget(vessel);
+            record("Crash vessel " + vessel.getId());
+        });
+    }
+
+    private static VesselOrder vesselOrder(Vessel v) {
+        return new VesselOrder(v.getConcept(),
+                v.getDesignIteration(),
+                v.getLocation().getCelestialBody(),
+                v.getLocation().isInSpace(),
+                v.getId());
+    }
+
+    @Override
+    public void reindex(KSPObject object) {
+        write(() -> {
+            if (object instanceof Concept c) concepts.reindex(c);
+            else if (object instanceof Vessel v) {
+                vessels.reindex(v);
+                crashedVessels.reindex(v);
+            }
+        });
     }
 
     @Override
     public void ready() {
-        for (Kerbal k : kerbals) k.ready();
-        for (Mission m : missions) m.ready();
-        for (Concept v : concepts) v.ready();
-        for (Vessel v : vessels) v.ready();
-        for (Vessel v : crashedVessels) v.ready();
+        LinkReport report = link();
+        lastLinkReport = report;
+        if (!report.isEmpty()) System.err.println("WARNING: Unresolved references found: " + report);
+    }
+
+    /** Links every object in memory in a single pass. In lazy mode, objects are linked through the controller
+     * instead, so references to records that haven't been decoded yet get materialized; no report is made then.
+     * @return The references that couldn't be resolved.
+     */
+    public LinkReport link() {
+        return write(this::linkAll);
+    }
+
+    private LinkReport linkAll() {
+        if (mode == LoadMode.LAZY) {
+            List<KSPObject> all = new ArrayList<>(kerbals.size() + missions.size() + concepts.size() + vessels.size() + crashedVessels.size());
+            all.addAll(kerbals);
+            all.addAll(missions);
+            all.addAll(concepts);
+            all.addAll(vessels);
+            all.addAll(crashedVessels);
+            materializing++;
+            try {
+                for (KSPObject o : all) o.link(this);
+            } finally {
+                materializing--;
+            }
+            cache.trim(null);
+            return new LinkReport();
+        }
+        Linker linker = new Linker(kerbals, missions, concepts, vessels, crashedVessels);
+        return linker.link(kerbals, missions, concepts, vessels, crashedVessels);
+    }
+
+    public LinkReport getLastLinkReport() {
+        return lastLinkReport;
+    }
+
+    @Override
+    public boolean addReference(KSPObject target, KSPObjectListener referrer) {
+        return write(() -> references.add(target, referrer));
+    }
+
+    @Override
+    public boolean removeReference(KSPObject target, KSPObjectListener referrer) {
+        return write(() -> references.remove(target, referrer));
+    }
+
+    @Override
+    public boolean isReferenced(KSPObject target) {
+        return read(() -> references.isReferenced(target));
+    }
+
+    @Override
+    public int fireDeletion(KSPObject source, String status) {
+        return write(() -> references.fireDeletion(source, status));
+    }
+
+    /** Returns how many objects reference the target.
+     */
+    public int countReferrers(KSPObject target) {
+        return read(() -> references.countReferrers(target));
+    }
+
+    /** Returns every vessel built from the concept, active or crashed. In lazy mode, every vessel is decoded first.
+     */
+    public List<Vessel> getVessels(Concept concept) {
+        return read(() -> {
+            materializeAll(lazyVessels, vessels);
+            materializeAll(lazyCrashed, crashedVessels);
+            return references.getReferrers(concept, Vessel.class);
+        });
+    }
+
+    /** Returns every mission the kerbal is part of the crew of. In lazy mode, every mission is decoded first.
+     */
+    public List<Mission> getMissions(Kerbal kerbal) {
+        return read(() -> {
+            materializeAll(lazyMissions, missions);
+            return references.getReferrers(kerbal, Mission.class);
+        });
+    }
+
+    // Full-text search
+
+    /** Searches the free text of the whole career: descriptions, mission events, honorable mentions, flight logs,
+     * iteration changes and crash details. Text stored inside an object counts as the object's own. Words are
+     * searched on their own, and words between double quotes as a phrase, such as {@code "parachute failure"}.
+     * <p>
+     * The index is built on the first search, which decodes everything in lazy mode. It's kept up to date afterwards,
+     * only indexing again what changed.
+     * @param limit Maximum amount of objects returned
+     * @param type Kind of objects to look for, {@link KSPObject} for every kind
+     * @return The objects best matching the query, best first.
+     */
+    public <T extends KSPObject> List<TextIndex.Hit<T>> searchText(String query, int limit, Class<T> type) {
+        return write(() -> {
+            if (text == null) {
+                text = new TextIndex<>();
+                textChanged.clear();
+                visitAll((region, o) -> index(o));
+            } else indexChanged();
+
+            List<TextIndex.Hit<T>> ret = new ArrayList<>();
+            for (TextIndex.Hit<TextKey> hit : text.search(query, limit, k -> type.isAssignableFrom(regionType(k.region())))) {
+                KSPObject o = find(hit.document());
+                if (type.isInstance(o)) ret.add(new TextIndex.Hit<>(type.cast(o), hit.score()));
+            }
+            return ret;
+        });
+    }
+
+    /** Indexes again every object changed since the last search. Deleted ones are taken out, and whatever replaced
+     * them (after undoing, say) is indexed in their place.
+     */
+    private void indexChanged() {
+        List<KSPObject> changed = new ArrayList<>(textChanged);
+        textChanged.clear();
+        for (KSPObject o : changed) {
+            TextKey old = textKeys.remove(o);
+            if (old != null) text.remove(old);
+            index(o);
+            if (old == null || text.contains(old)) continue;
+            KSPObject replacement = find(old);
+            if (replacement != null && replacement != o) index(replacement);
+        }
+    }
+
+    private void index(KSPObject object) {
+        TextKey key = textKey(object);
+        if (key == null) return;
+        List<String> fields = new ArrayList<>();
+        object.collectText(fields::add);
+        text.put(key, fields);
+        textKeys.put(object, key);
+    }
+
+    private TextKey textKey(KSPObject object) {
+        String region = regionOf(object);
+        String key = lookupKey(object);
+        return region == null || key == null ? null : new TextKey(region, key);
+    }
+
+    /** Returns what an object is looked up (and referred to) by: a name, or a vessel id.
+     */
+    private static String lookupKey(KSPObject object) {
+        if (object instanceof Kerbal k) return k.getName();
+        if (object instanceof Mission m) return m.getName();
+        if (object instanceof Concept c) return c.getName();
+        if (object instanceof Vessel v) return Long.toString(v.getId());
+        return null;
+    }
+
+    private KSPObject find(TextKey key) {
+        return switch (key.region()) {
+            case KERBAL_REGION -> getKerbal(key.name());
+            case MISSION_REGION -> getMission(key.name());
+            case CONCEPT_REGION -> getConcept(key.name());
+            case VESSEL_REGION -> getInstance(Long.parseLong(key.name()));
+            case CRASHED_REGION -> getCrashedInstance(Long.parseLong(key.name()));
+            default -> null;
+        };
+    }
+
+    private static Class<? extends KSPObject> regionType(String region) {
+        return switch (region) {
+            case KERBAL_REGION -> Kerbal.class;
+            case MISSION_REGION -> Mission.class;
+            case CONCEPT_REGION -> Concept.class;
+            default -> Vessel.class;
+        };
     }
 
     @Override
@@ -0,0 +1,257 @@
+package controller;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made to the stored regions since the last full save. Every controller operation
+ * appends one batch with the records it added, replaced or removed, so a crash only loses the operation in progress.
+ * <p>
+ * Batches are framed by their length and a checksum. A batch cut short by a crash fails the check, and it's ignored
+ * along with anything after it.
+ * <p>
+ * The journal is made of three segments: the checkpoint, holding only the latest record of every key journaled
+ * before it, the one being folded into the checkpoint (or into the database, by a save), and the active one.
+ * Replaying goes through all of them, oldest first. None of them ever touch the database, so discarding the journal
+ * still drops every change since the last save.
+ */
+class Journal {
+
+    private static final int MAGIC = 0x4B53504A; // KSPJ
+    private static final int VERSION = 1;
+    private static final byte PUT = 'P';
+    private static final byte REMOVE = 'R';
+    private static final String CHECKPOINT = "Checkpoint";
+
+    /** A single change to a region. Removals have no fields.
+     */
+    record Entry(String region, String key, Collection<String> fields) {
+        static Entry put(String region, String key, Collection<String> fields) {
+            return new Entry(region, key, fields);
+        }
+
+        static Entry remove(String region, String key) {
+            return new Entry(region, key, null);
+        }
+
+        boolean isRemoval() {
+            return fields == null;
+        }
+    }
+
+    /** Every change made by a single operation.
+     */
+    record Batch(String operation, List<Entry> entries) {}
+
+    private record Key(String region, String key) {}
+
+    private final File active;
+    private final File compacting;
+    private final File checkpoint;
+    private FileOutputStream out;
+
+    Journal(File active, File compacting, File checkpoint) {
+        this.active = active;
+        this.compacting = compacting;
+        this.checkpoint = checkpoint;
+    }
+
+    /** Appends a batch, and forces it to disk before returning.
+     */
+    void append(String operation, List<Entry> entries) throws IOException {
+        write(open(), operation, entries);
+        out.getChannel().force(false);
+    }
+
+    private static void write(OutputStream out, String operation, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(buffer);
+        writeString(data, operation);
+        data.writeInt(entries.size());
+        for (Entry e : entries) {
+            data.writeByte(e.isRemoval() ? REMOVE : PUT);
+            writeString(data, e.region());
+            writeString(data, e.key());
+            if (e.isRemoval()) continue;
+            data.writeInt(e.fields().size());
+            for (String s : e.fields()) writeString(data, s);
+        }
+        byte[] payload = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        DataOutputStream frame = new DataOutputStream(new BufferedOutputStream(out, payload.length + 8));
+        frame.writeInt(payload.length);
+        frame.writeInt((int) crc.getValue());
+        frame.write(payload);
+        frame.flush();
+    }
+
+    private FileOutputStream open() throws IOException {
+        if (out != null) return out;
+        boolean fresh = !active.exists() || active.length() == 0;
+        out = new FileOutputStream(active, true);
+        if (fresh) header(out);
+        return out;
+    }
+
+    private static void header(OutputStream out) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.flush();
+    }
+
+    /** Size of the active segment, in bytes.
+     */
+    long size() {
+        return active.length();
+    }
+
+    /** Moves the active segment's batches after the compacting segment's, leaving the active one empty.
+     */
+    void rotate() throws IOException {
+        close();
+        if (!active.exists()) return;
+        if (!compacting.exists()) {
+            Files.move(active.toPath(), compacting.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        // Last compaction failed, keep its batches in front
+        try (FileOutputStream o = new FileOutputStream(compacting, true);
+             FileInputStream in = new FileInputStream(active)) {
+            in.skipNBytes(8); // Header
+            in.transferTo(o);
+            o.getChannel().force(false);
+        }
+        Files.delete(active.toPath());
+    }
+
+    /** Folds the compacting segment into the checkpoint, keeping only the latest record (or removal) of every key.
+     * The segment is deleted once the new checkpoint is in place. Doesn't touch the active segment, so batches can
+     * keep being appended meanwhile.
+     */
+    void checkpoint() throws IOException {
+        List<Batch> batches = new ArrayList<>();
+        read(checkpoint, batches);
+        read(compacting, batches);
+        Map<Key, Entry> latest = new LinkedHashMap<>();
+        for (Batch b : batches) {
+            for (Entry e : b.entries()) {
+                Key key = new Key(e.region().toUpperCase(Locale.ROOT), e.key());
+                latest.remove(key); // Kept in the order they last changed
+                latest.put(key, e);
+            }
+        }
+
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        try (FileOutputStream o = new FileOutputStream(temp)) {
+            header(o);
+            write(o, CHECKPOINT, new ArrayList<>(latest.values()));
+            o.getChannel().force(false);
+        }
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Replaying it again on top of the new checkpoint would change nothing, so a crash here is harmless
+        Files.deleteIfExists(compacting.toPath());
+    }
+
+    /** Deletes the checkpoint and the compacting segment, once their batches are in the database.
+     */
+    void compacted() throws IOException {
+        Files.deleteIfExists(checkpoint.toPath());
+        Files.deleteIfExists(compacting.toPath());
+    }
+
+    /** Deletes every segment.
+     */
+    void truncate() throws IOException {
+        close();
+        Files.deleteIfExists(checkpoint.toPath());
+        Files.deleteIfExists(compacting.toPath());
+        Files.deleteIfExists(active.toPath());
+    }
+
+    void close() throws IOException {
+        if (out == null) return;
+        out.close();
+        out = null;
+    }
+
+    /** Reads every intact batch, oldest first.
+     */
+    List<Batch> read() throws IOException {
+        List<Batch> ret = new ArrayList<>();
+        read(checkpoint, ret);
+        read(compacting, ret);
+        read(active, ret);
+        return ret;
+    }
+
+    private static void read(File file, List<Batch> batches) throws IOException {
+        if (!file.exists() || file.length() < 8) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("WARNING: Unknown journal format in " + file.getName() + ", ignoring it");
+                return;
+            }
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > file.length()) break;
+                    payload = in.readNBytes(length);
+                    if (payload.length != length) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break; // Torn write
+                batches.add(decode(payload));
+            }
+        }
+    }
+
+    private static Batch decode(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        String operation = readString(data);
+        int count = data.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i != count; i++) {
+            byte kind = data.readByte();
+            String region = readString(data);
+            String key = readString(data);
+            if (kind == REMOVE) {
+                entries.add(Entry.remove(region, key));
+                continue;
+            }
+            int size = data.readInt();
+            List<String> fields = new ArrayList<>(size);
+            for (int j = 0; j != size; j++) fields.add(readString(data));
+            entries.add(Entry.put(region, key, fields));
+        }
+        return new Batch(operation, entries);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package controller;
+
+import other.KSPObject;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Stored records of a region that haven't been decoded yet, indexed by the key their object is looked up with
+ * (a name, or a vessel id). Records are taken out when their object is materialized, and put back when it's evicted.
+ * <p>
+ * Evicted objects are remembered for as long as something else holds them, such as a list, so materializing their
+ * record again gives back the same object instead of a copy.
+ */
+class LazyRegion<V extends KSPObject> {
+
+    private final int keyField;
+    private final Function<StoredRecord, V> decoder;
+    private final Map<String, StoredRecord> records = new LinkedHashMap<>();
+    private final Map<String, WeakReference<V>> evicted = new HashMap<>();
+
+    /**
+     * @param keyField Position of the lookup key within a stored record
+     * @param decoder Turns a record into an object, or null if the record is corrupt
+     */
+    LazyRegion(int keyField, Function<StoredRecord, V> decoder) {
+        this.keyField = keyField;
+        this.decoder = decoder;
+    }
+
+    /** Returns the lookup key of a stored record, or null if the record is too short to have one.
+     */
+    String keyOf(StoredRecord record) {
+        if (record.fields().size() <= keyField) return null;
+        Iterator<String> it = record.fields().iterator();
+        for (int i = 0; i != keyField; i++) it.next();
+        return it.next();
+    }
+
+    /** Stores a record under its own key.
+     * @return false if the key is missing or already taken, in which case the record must be decoded right away.
+     */
+    boolean put(StoredRecord record) {
+        String key = keyOf(record);
+        return key != null && records.putIfAbsent(key, record) == null;
+    }
+
+    /** Puts back the record of an evicted object.
+     */
+    void put(String key, StoredRecord record, V object) {
+        records.put(key, record);
+        evicted.put(key, new WeakReference<>(object));
+    }
+
+    /** Returns the object evicted from the record stored under the key, if it's still in memory, and forgets it.
+     * It's the same as decoding the record again, since only unchanged objects are evicted.
+     */
+    V revive(String key) {
+        WeakReference<V> ret = evicted.remove(key);
+        return ret == null ? null : ret.get();
+    }
+
+    /** Removes and returns the record stored under the key, or null if there's none.
+     */
+    StoredRecord take(String key) {
+        return key == null ? null : records.remove(key);
+    }
+
+    /** Returns the record stored under the key without taking it out, or null if there's none.
+     */
+    StoredRecord peek(String key) {
+        return records.get(key);
+    }
+
+    void remove(String key) {
+        records.remove(key);
+        evicted.remove(key);
+    }
+
+    V decode(StoredRecord record) {
+        return decoder.apply(record);
+    }
+
+    /** Records still waiting to be decoded. The returned collection is a copy.
+     */
+    List<String> keys() {
+        return new ArrayList<>(records.keySet());
+    }
+
+    /** The first records still waiting to be decoded, up to the given amount. The returned list is a copy.
+     */
+    List<String> nextKeys(int limit) {
+        List<String> ret = new ArrayList<>(Math.min(limit, records.size()));
+        for (Iterator<String> it = records.keySet().iterator(); it.hasNext() && ret.size() != limit; ) ret.add(it.next());
+        return ret;
+    }
+
+    /** Records still waiting to be decoded with a field containing the text, such as those referring to an object by
+     * its name. The returned list is a copy.
+     */
+    List<String> mentioning(String text) {
+        List<String> ret = new ArrayList<>();
+        for (Map.Entry<String, StoredRecord> e : records.entrySet()) {
+            for (String field : e.getValue().fields()) {
+                if (field == null || !field.contains(text)) continue;
+                ret.add(e.getKey());
+                break;
+            }
+        }
+        return ret;
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    void clear() {
+        records.clear();
+        evicted.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package controller;
+
+import other.KSPObject;
+
+import java.util.*;
+
+/**
+ * Result of a {@link Linker} pass. Lists every reference that couldn't be resolved, along with the object holding it.
+ */
+public class LinkReport {
+
+    /**
+     * A single reference that didn't point to anything.
+     * @param source Object holding the reference
+     * @param kind What the reference should point to ("kerbal", "mission", "concept" or "vessel")
+     * @param reference The stored name or id
+     */
+    public record Unresolved(KSPObject source, String kind, String reference) {}
+
+    private final List<Unresolved> unresolved = new ArrayList<>();
+    private int resolved = 0;
+
+    void resolved() {
+        resolved++;
+    }
+
+    void unresolved(KSPObject source, String kind, String reference) {
+        unresolved.add(new Unresolved(source, kind, reference));
+    }
+
+    public int getResolvedCount() {
+        return resolved;
+    }
+
+    public List<Unresolved> getUnresolved() {
+        return Collections.unmodifiableList(unresolved);
+    }
+
+    public boolean isEmpty() {
+        return unresolved.isEmpty();
+    }
+
+    /** Groups the unresolved references by the kind of object they should point to.
+     */
+    public Map<String, Integer> countByKind() {
+        Map<String, Integer> ret = new TreeMap<>();
+        for (Unresolved u : unresolved) ret.merge(u.kind(), 1, Integer::sum);
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        if (unresolved.isEmpty()) return resolved + " references resolved";
+        StringJoiner joiner = new StringJoiner(", ", resolved + " references resolved, " + unresolved.size() + " unresolved (", ")");
+        countByKind().forEach((kind, count) -> joiner.add(count + " " + kind));
+        return joiner.toString();
+    }
+}
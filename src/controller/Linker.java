@@ -0,0 +1,87 @@
+package controller;
+
+import kerbals.Kerbal;
+import missions.Mission;
+import other.KSPObject;
+import vessels.Concept;
+import vessels.Vessel;
+
+/**
+ * Links a whole set of objects in one go. Every object resolves its references straight against the registries'
+ * indexes, instead of asking the controller one reference at a time, so a shared name resolves to the same object
+ * the controller's lookups return. Whatever can't be resolved ends up in the {@link LinkReport}.
+ * <p>
+ * References that were deliberately cleared (like "[REDACTED]") or that aren't meant to point anywhere
+ * (like the "Hired" origin) aren't reported.
+ */
+public class Linker implements ReferenceResolver {
+
+    private final NameRegistry<Kerbal> kerbals;
+    private final NameRegistry<Mission> missions;
+    private final NameRegistry<Concept> concepts;
+    private final VesselRegistry vessels;
+    private final VesselRegistry crashedVessels;
+    private LinkReport report = new LinkReport();
+
+    Linker(NameRegistry<Kerbal> kerbals, NameRegistry<Mission> missions, NameRegistry<Concept> concepts, VesselRegistry vessels, VesselRegistry crashedVessels) {
+        this.kerbals = kerbals;
+        this.missions = missions;
+        this.concepts = concepts;
+        this.vessels = vessels;
+        this.crashedVessels = crashedVessels;
+    }
+
+    /** Links every object of every group, returning the report for this pass.
+     */
+    @SafeVarargs
+    public final LinkReport link(Iterable<? extends KSPObject>... groups) {
+        report = new LinkReport();
+        for (Iterable<? extends KSPObject> group : groups)
+            for (KSPObject o : group) o.link(this);
+        return report;
+    }
+
+    public LinkReport getReport() {
+        return report;
+    }
+
+    private static boolean isPlaceholder(String reference) {
+        return reference == null
+                || reference.equals("None")
+                || reference.equals("(none)")
+                || reference.equals("Hired")
+                || (reference.startsWith("[") && reference.endsWith("]")); // [REDACTED], [CLASSIFIED]...
+    }
+
+    private <T> T check(KSPObject source, String kind, String reference, T found) {
+        if (found != null) report.resolved();
+        else report.unresolved(source, kind, reference);
+        return found;
+    }
+
+    @Override
+    public Kerbal resolveKerbal(KSPObject source, String name) {
+        if (isPlaceholder(name)) return null;
+        return check(source, "kerbal", name, kerbals.get(name));
+    }
+
+    @Override
+    public Mission resolveMission(KSPObject source, String name) {
+        if (isPlaceholder(name)) return null;
+        return check(source, "mission", name, missions.get(name));
+    }
+
+    @Override
+    public Concept resolveConcept(KSPObject source, String name) {
+        if (isPlaceholder(name)) return null;
+        return check(source, "concept", name, concepts.get(name));
+    }
+
+    @Override
+    public Vessel resolveVessel(KSPObject source, long id) {
+        if (id == 0) return null; // Deleted vessel
+        Vessel found = vessels.get(id);
+        if (found == null) found = crashedVessels.get(id);
+        return check(source, "vessel", Long.toString(id), found);
+    }
+}
@@ -0,0 +1,21 @@
+package controller;
+
+/**
+ * How the controller turns the stored regions into objects at startup.
+ */
+public enum LoadMode {
+    /**
+     * Decode every region, one after another, on the calling thread
+     */
+    SEQUENTIAL,
+    /**
+     * Decode every region (and chunks of the larger ones) concurrently on a fork-join pool
+     */
+    PARALLEL,
+    /**
+     * Keep the stored records as they are, and only decode an object the first time it's needed. This speeds up
+     * startup, but it doesn't bound memory: decoded objects stay once anything references them, which in a linked
+     * career is most of them, see {@link MaterializationCache}.
+     */
+    LAZY
+}
@@ -0,0 +1,78 @@
+package controller;
+
+import other.KSPObject;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the objects decoded from a {@link LazyRegion}, from least to most recently used, and evicts the
+ * cold ones once there are more than the capacity allows.
+ * <p>
+ * Only objects that can be rebuilt exactly are evicted: nothing may be referencing them, and they must not have
+ * changed since they were decoded. Anything modified or linked to stays in memory, and in a linked career that's
+ * most objects. The capacity is then only a target for the rest, not a bound on memory: it mostly drops objects
+ * that were looked up on their own and aren't part of anything.
+ */
+class MaterializationCache {
+
+    private final LinkedHashMap<KSPObject, Consumer<KSPObject>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity;
+
+    MaterializationCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param object The freshly decoded object
+     * @param evictor Returns the object to its encoded form (and removes it from wherever it's registered)
+     */
+    void put(KSPObject object, Consumer<KSPObject> evictor) {
+        entries.put(object, evictor);
+    }
+
+    /** Marks the object as recently used.
+     */
+    void touch(KSPObject object) {
+        entries.get(object);
+    }
+
+    /** Stops tracking an object, which will never be evicted from then on.
+     */
+    void forget(KSPObject object) {
+        entries.remove(object);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Evicts the least recently used objects until the cache is within capacity, or nothing else can be evicted.
+     * @param keep Object that must stay, usually the one that was just materialized
+     * @return Amount of objects evicted
+     */
+    int trim(KSPObject keep) {
+        int evicted = 0;
+        for (Iterator<Map.Entry<KSPObject, Consumer<KSPObject>>> it = entries.entrySet().iterator(); it.hasNext() && entries.size() > capacity; ) {
+            Map.Entry<KSPObject, Consumer<KSPObject>> e = it.next();
+            KSPObject o = e.getKey();
+            if (o == keep || o.isReferenced() || o.isDirty()) continue;
+            it.remove();
+            e.getValue().accept(o);
+            evicted++;
+        }
+        return evicted;
+    }
+}
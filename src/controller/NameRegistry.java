@@ -0,0 +1,80 @@
+package controller;
+
+import other.KSPObject;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Registry indexed by name. Objects are kept in insertion order.
+ * Names aren't guaranteed to be unique: the first object registered under a name is the one returned by
+ * {@link NameRegistry#get(String)}, same as the old linear search did. The rest wait in line until it's removed.
+ */
+class NameRegistry<V extends KSPObject> extends Registry<V> {
+
+    private final Function<V, String> name;
+    private final Set<V> members = new LinkedHashSet<>();
+    private final Map<String, V> index = new HashMap<>();
+    /**
+     * Objects whose name was already taken when they were added
+     */
+    private final List<V> shadowed = new LinkedList<>();
+
+    NameRegistry(Function<V, String> name) {
+        this.name = name;
+    }
+
+    public V get(String name) {
+        return name == null ? null : index.get(name);
+    }
+
+    @Override
+    protected boolean insert(V value) {
+        if (!members.add(value)) return false;
+        if (index.putIfAbsent(name.apply(value), value) != null) shadowed.add(value);
+        return true;
+    }
+
+    @Override
+    protected boolean delete(V value) {
+        if (!members.remove(value)) return false;
+        String key = name.apply(value);
+        if (!index.remove(key, value)) {
+            shadowed.remove(value);
+            return true;
+        }
+        // Next in line takes over the name
+        if (shadowed.isEmpty()) return true;
+        for (Iterator<V> it = shadowed.iterator(); it.hasNext(); ) {
+            V v = it.next();
+            if (key.equals(name.apply(v))) {
+                index.put(key, v);
+                it.remove();
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return members.contains(value);
+    }
+
+    @Override
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    protected void wipe() {
+        members.clear();
+        index.clear();
+        shadowed.clear();
+    }
+
+    @Override
+    protected Iterator<V> members() {
+        return Collections.unmodifiableSet(members).iterator();
+    }
+}
@@ -0,0 +1,73 @@
+package controller;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps a set of objects sorted by a key extracted from them. The key each object was inserted with is remembered,
+ * so an object whose key changed can still be found and moved with {@link OrderedIndex#reindex(Object)}.
+ * Objects with equal keys are kept in insertion order.
+ */
+class OrderedIndex<K, V> implements Iterable<V> {
+
+    private record Slot<K>(K key, long sequence) {}
+
+    private final Function<V, K> key;
+    private final TreeMap<Slot<K>, V> sorted;
+    /**
+     * Slot each object is currently stored under. Compared by identity, objects don't override equals.
+     */
+    private final Map<V, Slot<K>> slots = new IdentityHashMap<>();
+    private long sequence = 0;
+
+    OrderedIndex(Function<V, K> key, Comparator<K> order) {
+        this.key = key;
+        Comparator<Slot<K>> bySlot = Comparator.comparing(Slot::key, order);
+        this.sorted = new TreeMap<>(bySlot.thenComparingLong(Slot::sequence));
+    }
+
+    public void add(V value) {
+        if (slots.containsKey(value)) return;
+        Slot<K> slot = new Slot<>(key.apply(value), sequence++);
+        slots.put(value, slot);
+        sorted.put(slot, value);
+    }
+
+    public void remove(V value) {
+        Slot<K> slot = slots.remove(value);
+        if (slot != null) sorted.remove(slot);
+    }
+
+    /** Moves an object to the position its current key belongs to.
+     * @return false if the object isn't in the index, or its key didn't change.
+     */
+    public boolean reindex(V value) {
+        Slot<K> old = slots.get(value);
+        if (old == null) return false;
+        K current = key.apply(value);
+        if (Objects.equals(old.key(), current)) return false;
+        Slot<K> slot = new Slot<>(current, old.sequence());
+        sorted.remove(old);
+        slots.put(value, slot);
+        sorted.put(slot, value);
+        return true;
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    public void clear() {
+        sorted.clear();
+        slots.clear();
+    }
+
+    public Object[] toArray() {
+        return sorted.values().toArray();
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return Collections.unmodifiableCollection(sorted.values()).iterator();
+    }
+}
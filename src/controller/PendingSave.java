@@ -0,0 +1,80 @@
+package controller;
+
+import storage.Backend;
+import storage.Region;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * A consistent copy of every stored region, waiting to be written to disk. Created by
+ * {@link GUIController#prepareSave()}, which is the only part of a save that needs the controller. Writing only
+ * touches the copy, so it can run on any thread while the controller keeps being used.
+ */
+public final class PendingSave {
+
+    private final Backend backend;
+    private final List<Region> regions;
+    /**
+     * Null if the backend isn't journaled
+     */
+    private final Journal journal;
+    private final int recordCount;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    PendingSave(Backend backend, List<Region> regions, Journal journal) {
+        this.backend = backend;
+        this.regions = regions;
+        this.journal = journal;
+        this.recordCount = regions.stream().mapToInt(Region::getSize).sum();
+    }
+
+    /** Amount of records that will be written.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /** Writes the copy to disk. Must be called exactly once, from any thread.
+     * @param progress Receives the amount of records written so far
+     */
+    public void write(IntConsumer progress) throws IOException {
+        try {
+            backend.write(regions, progress);
+            // The journaled changes up to this point are stored now
+            if (journal != null) journal.compacted();
+            done.complete(null);
+        } catch (IOException | RuntimeException e) {
+            done.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    boolean isDone() {
+        return done.isDone();
+    }
+
+    /** Returns true if the copy was written successfully.
+     */
+    boolean isWritten() {
+        return done.isDone() && !done.isCompletedExceptionally();
+    }
+
+    /** Waits until the copy is written, or fails to.
+     * @return false if it failed.
+     */
+    boolean await() {
+        try {
+            done.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package controller;
+
+import other.KSPObject;
+import other.interfaces.KSPObjectDeletionEvent;
+import other.interfaces.KSPObjectListener;
+
+import java.util.*;
+
+/**
+ * Keeps track of who references whom, for every object of a controller. Objects register here (through
+ * {@link KSPObject#addEventListener}) instead of keeping their own listener lists, so:
+ * <ul>
+ *     <li>A reference is only recorded once, no matter how many times the objects are linked again.</li>
+ *     <li>Deleting an object notifies its referrers straight from the index, with a single event.</li>
+ *     <li>Reverse lookups ("every vessel of this concept") don't need to walk the registries.</li>
+ * </ul>
+ * Referrers are kept in the order they were added. Not thread safe by itself: the controller only touches it under
+ * its own lock, and objects reach it through the controller.
+ */
+public class ReferenceIndex {
+
+    /**
+     * Target -> objects referencing it
+     */
+    private final Map<KSPObject, Set<KSPObjectListener>> referrers = new HashMap<>();
+    /**
+     * Referrer -> objects it references, to drop it in one go
+     */
+    private final Map<KSPObjectListener, Set<KSPObject>> targets = new HashMap<>();
+
+    /**
+     * @return false if the reference was already recorded.
+     */
+    public boolean add(KSPObject target, KSPObjectListener referrer) {
+        if (!referrers.computeIfAbsent(target, t -> new LinkedHashSet<>()).add(referrer)) return false;
+        targets.computeIfAbsent(referrer, r -> new HashSet<>()).add(target);
+        return true;
+    }
+
+    /**
+     * @return false if there was no such reference.
+     */
+    public boolean remove(KSPObject target, KSPObjectListener referrer) {
+        if (!removeFrom(referrers, target, referrer)) return false;
+        removeFrom(targets, referrer, target);
+        return true;
+    }
+
+    private static <K, V> boolean removeFrom(Map<K, Set<V>> map, K key, V value) {
+        Set<V> set = map.get(key);
+        if (set == null || !set.remove(value)) return false;
+        if (set.isEmpty()) map.remove(key);
+        return true;
+    }
+
+    public boolean isReferenced(KSPObject target) {
+        return referrers.containsKey(target);
+    }
+
+    /** Returns how many objects reference the target.
+     */
+    public int countReferrers(KSPObject target) {
+        Set<KSPObjectListener> set = referrers.get(target);
+        return set == null ? 0 : set.size();
+    }
+
+    /** Returns every object of the given type that references the target. Objects stored inside another one (like
+     * crew details inside a mission) count as the one holding them.
+     */
+    public <T extends KSPObject> List<T> getReferrers(KSPObject target, Class<T> type) {
+        Set<KSPObjectListener> set = referrers.get(target);
+        if (set == null) return List.of();
+        Set<T> ret = new LinkedHashSet<>();
+        for (KSPObjectListener l : set) {
+            if (!(l instanceof KSPObject o)) continue;
+            while (o.getOwner() != null) o = o.getOwner();
+            if (type.isInstance(o)) ret.add(type.cast(o));
+        }
+        return new ArrayList<>(ret);
+    }
+
+    /** Returns every object the referrer references.
+     */
+    public Set<KSPObject> getTargets(KSPObjectListener referrer) {
+        Set<KSPObject> set = targets.get(referrer);
+        return set == null ? Set.of() : Collections.unmodifiableSet(set);
+    }
+
+    /** Tells every referrer of the object that it's been deleted. Referrers may drop their reference (or delete
+     * other objects) while being notified.
+     * @return Amount of referrers notified
+     */
+    public int fireDeletion(KSPObject source, String status) {
+        Set<KSPObjectListener> set = referrers.get(source);
+        if (set == null) return 0;
+        KSPObjectDeletionEvent event = new KSPObjectDeletionEvent(source, status);
+        List<KSPObjectListener> notified = new ArrayList<>(set);
+        for (KSPObjectListener l : notified) l.onDeletion(event);
+        return notified.size();
+    }
+
+    /** Drops every reference to and from the object.
+     */
+    public void forget(KSPObject object) {
+        Set<KSPObjectListener> from = referrers.remove(object);
+        if (from != null) for (KSPObjectListener l : from) removeFrom(targets, l, object);
+        if (object instanceof KSPObjectListener l) {
+            Set<KSPObject> to = targets.remove(l);
+            if (to != null) for (KSPObject t : to) removeFrom(referrers, t, l);
+        }
+    }
+
+    public void clear() {
+        referrers.clear();
+        targets.clear();
+    }
+}
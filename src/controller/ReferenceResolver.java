@@ -0,0 +1,24 @@
+package controller;
+
+import kerbals.Kerbal;
+import missions.Mission;
+import other.KSPObject;
+import vessels.Concept;
+import vessels.Vessel;
+
+/**
+ * Resolves the stored references between objects (names and ids) into the actual objects.
+ * Every method receives the object asking, so that implementations can keep track of who failed to resolve what.
+ */
+public interface ReferenceResolver {
+
+    Kerbal resolveKerbal(KSPObject source, String name);
+
+    Mission resolveMission(KSPObject source, String name);
+
+    Concept resolveConcept(KSPObject source, String name);
+
+    /** Looks up a vessel by id, active or crashed.
+     */
+    Vessel resolveVessel(KSPObject source, long id);
+}
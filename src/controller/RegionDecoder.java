@@ -0,0 +1,59 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Fork-join task that decodes the stored records of a region. Large regions are split in chunks, decoded
+ * separately and joined back in their original order.
+ * <p>
+ * The decoder must not touch shared state: objects are only created here, linking happens later on.
+ * A null result means the record was unusable, and it's skipped.
+ */
+class RegionDecoder<T> extends RecursiveTask<List<T>> {
+
+    private static final int CHUNK_SIZE = 512;
+
+    private final List<StoredRecord> records;
+    private final int from;
+    private final int to;
+    private final Function<StoredRecord, T> decoder;
+
+    RegionDecoder(List<StoredRecord> records, Function<StoredRecord, T> decoder) {
+        this(records, 0, records.size(), decoder);
+    }
+
+    private RegionDecoder(List<StoredRecord> records, int from, int to, Function<StoredRecord, T> decoder) {
+        this.records = records;
+        this.from = from;
+        this.to = to;
+        this.decoder = decoder;
+    }
+
+    @Override
+    protected List<T> compute() {
+        if (to - from <= CHUNK_SIZE) return decode(records.subList(from, to), decoder);
+
+        int middle = (from + to) >>> 1;
+        RegionDecoder<T> left = new RegionDecoder<>(records, from, middle, decoder);
+        RegionDecoder<T> right = new RegionDecoder<>(records, middle, to, decoder);
+        left.fork();
+        List<T> ret = right.compute();
+        List<T> first = left.join();
+        first.addAll(ret);
+        return first;
+    }
+
+    /** Sequential version, for when there's no point in forking.
+     */
+    static <T> List<T> decode(List<StoredRecord> records, Function<StoredRecord, T> decoder) {
+        List<T> ret = new ArrayList<>(records.size());
+        for (StoredRecord r : records) {
+            T t = decoder.apply(r);
+            if (t != null) ret.add(t);
+        }
+        return ret;
+    }
+}
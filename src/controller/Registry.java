@@ -0,0 +1,109 @@
+package controller;
+
+import other.KSPObject;
+
+import java.util.AbstractCollection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Holds every loaded object of a single kind, indexed so that lookups don't need to walk the whole collection.
+ * Subclasses decide which key the objects are indexed by.
+ * <p>
+ * A registry can also be given an order, in which case iteration and snapshots follow it instead of the
+ * subclass' own order.
+ */
+abstract class Registry<V extends KSPObject> extends AbstractCollection<V> {
+
+    private long version = 0;
+    private volatile Snapshot<V> snapshot;
+    private OrderedIndex<?, V> order;
+
+    /** Sorts the registry by the given key. Must be called while the registry is still empty.
+     */
+    public <K> void orderBy(Function<V, K> key, Comparator<K> comparator) {
+        if (!isEmpty()) throw new IllegalStateException("Registry must be empty to change its order");
+        order = new OrderedIndex<>(key, comparator);
+    }
+
+    /** Adds an object to the registry, indexing it.
+     * @return false if the object was already registered.
+     */
+    @Override
+    public final boolean add(V value) {
+        if (!insert(value)) return false;
+        if (order != null) order.add(value);
+        version++;
+        return true;
+    }
+
+    /** Removes an object from the registry, along with its index entries.
+     * @return false if the object wasn't registered.
+     */
+    public final boolean removeValue(V value) {
+        if (!delete(value)) return false;
+        if (order != null) order.remove(value);
+        version++;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final boolean remove(Object o) {
+        return o instanceof KSPObject && contains(o) && removeValue((V) o);
+    }
+
+    /** Must be called after a registered object changes any of the values it's sorted by.
+     */
+    public void reindex(V value) {
+        if (order != null && order.reindex(value)) version++;
+    }
+
+    @Override
+    public final void clear() {
+        wipe();
+        if (order != null) order.clear();
+        version++;
+    }
+
+    @Override
+    public final Iterator<V> iterator() {
+        return order != null ? order.iterator() : members();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /** Returns a read-only view of the registered objects, in the registry's order. The view is only rebuilt if the
+     * registry changed since the last call.
+     */
+    public Snapshot<V> snapshot() {
+        Snapshot<V> ret = snapshot;
+        if (ret == null || ret.version() != version) {
+            ret = new Snapshot<>(order != null ? order.toArray() : toArray(), version);
+            snapshot = ret;
+        }
+        return ret;
+    }
+
+    /** Returns the last snapshot taken, or null if the registry changed since. Unlike {@link Registry#snapshot()},
+     * it never builds one, so it can be called while the registry is being changed as long as the result is
+     * validated afterwards.
+     */
+    Snapshot<V> published() {
+        Snapshot<V> ret = snapshot;
+        return ret != null && ret.version() == version ? ret : null;
+    }
+
+    // Subclass implementation
+
+    protected abstract boolean insert(V value);
+
+    protected abstract boolean delete(V value);
+
+    protected abstract void wipe();
+
+    protected abstract Iterator<V> members();
+}
@@ -0,0 +1,223 @@
+package controller;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Substring search over a {@link Snapshot}, by a text key of each entry. Every piece of up to {@link SearchIndex#GRAM}
+ * characters of every key is indexed, so short queries are a single lookup, and longer ones only check the entries
+ * sharing their rarest piece. Case is ignored.
+ * <p>
+ * The index follows a collection as it grows: {@link SearchIndex#update(Snapshot)} only indexes the entries that are
+ * new (or whose key changed) since the last snapshot, so a list filled in chunks is indexed once overall. Entries are
+ * indexed under an id of their own, and results are turned into positions in the current snapshot, in ascending order.
+ * <p>
+ * Not thread safe, meant to be used from a single thread.
+ */
+public final class SearchIndex<T> {
+
+    /**
+     * Longest pieces indexed
+     */
+    public static final int GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    /** Entries matching a query, as positions in the snapshot it was made on. Passing it along with the next query lets
+     * the search go through these entries only, if the next query contains this one, plus whatever was indexed since.
+     */
+    public static final class Result {
+        private final String query;
+        private final int[] rows;
+        private final Snapshot<?> snapshot;
+        private final int generation;
+        /**
+         * Ids of the matching entries, and the amount of ids that had been given out when they were found
+         */
+        private final int[] ids;
+        private final int indexed;
+
+        private Result(String query, int[] rows, Snapshot<?> snapshot, int generation, int[] ids, int indexed) {
+            this.query = query;
+            this.rows = rows;
+            this.snapshot = snapshot;
+            this.generation = generation;
+            this.ids = ids;
+            this.indexed = indexed;
+        }
+
+        public String query() {
+            return query;
+        }
+
+        public int[] rows() {
+            return rows;
+        }
+    }
+
+    private final Function<? super T, String> key;
+    private Snapshot<? extends T> snapshot;
+    /**
+     * Id of every indexed entry. An entry whose key changed gets a new one, the old one is left unused
+     */
+    private final Map<T, Integer> ids = new IdentityHashMap<>();
+    /**
+     * Normalized key of every id
+     */
+    private final List<String> keys = new ArrayList<>();
+    /**
+     * Ids of the entries holding each piece, in ascending order
+     */
+    private final Map<String, Postings> grams = new HashMap<>();
+    /**
+     * Position of every id in the current snapshot, -1 if it isn't there anymore
+     */
+    private int[] positions = NONE;
+    /**
+     * Increases every time the index starts over, which makes earlier results useless
+     */
+    private int generation = 0;
+
+    /**
+     * @param key Text an entry is found by
+     */
+    public SearchIndex(Function<? super T, String> key) {
+        this.key = key;
+    }
+
+    /** Indexes every entry of a snapshot.
+     * @param key Text an entry is found by
+     */
+    public static <T> SearchIndex<T> build(Snapshot<? extends T> snapshot, Function<? super T, String> key) {
+        SearchIndex<T> ret = new SearchIndex<>(key);
+        ret.update(snapshot);
+        return ret;
+    }
+
+    public Snapshot<? extends T> getSnapshot() {
+        return snapshot;
+    }
+
+    /** Moves the index on to a newer snapshot of the same collection, indexing only the entries it hasn't seen yet.
+     * Starts over once most of the ids in use belong to entries that are gone.
+     */
+    public void update(Snapshot<? extends T> snapshot) {
+        if (snapshot == this.snapshot) return;
+        if (keys.size() > 2 * snapshot.size() + 64) clear();
+        this.snapshot = snapshot;
+        int[] position = new int[snapshot.size()];
+        for (int i = 0; i != position.length; i++) {
+            T t = snapshot.get(i);
+            String k = key.apply(t);
+            k = k == null ? "" : normalize(k);
+            Integer id = ids.get(t);
+            if (id == null || !keys.get(id).equals(k)) {
+                id = add(k);
+                ids.put(t, id);
+            }
+            position[i] = id;
+        }
+        positions = new int[keys.size()];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i != position.length; i++) positions[position[i]] = i;
+    }
+
+    private int add(String key) {
+        int id = keys.size();
+        keys.add(key);
+        for (int start = 0; start != key.length(); start++) {
+            for (int end = start + 1; end <= Math.min(key.length(), start + GRAM); end++)
+                grams.computeIfAbsent(key.substring(start, end), g -> new Postings()).add(id);
+        }
+        return id;
+    }
+
+    private void clear() {
+        ids.clear();
+        keys.clear();
+        grams.clear();
+        generation++;
+    }
+
+    /** Finds the entries of the current snapshot whose key contains the query.
+     * @param previous Result of the last search on this index, or null. If the query contains the previous one, only
+     *                 its entries, and the ones indexed after it, are checked
+     * @return null if the query is blank, which matches everything.
+     */
+    public Result search(String query, Result previous) {
+        String q = normalize(query);
+        if (q.isEmpty()) return null;
+        if (previous != null && previous.generation != generation) previous = null;
+        if (previous != null && previous.snapshot == snapshot && q.equals(previous.query)) return previous;
+
+        int[] found;
+        if (previous != null && q.contains(previous.query)) {
+            int[] earlier = q.equals(previous.query) ? previous.ids : filter(previous.ids, q);
+            int[] since = find(q, previous.indexed);
+            found = Arrays.copyOf(earlier, earlier.length + since.length);
+            System.arraycopy(since, 0, found, earlier.length, since.length);
+        } else found = find(q, 0);
+        return new Result(q, rows(found), snapshot, generation, found, keys.size());
+    }
+
+    /** Finds the ids from the given one onwards whose key contains the query.
+     */
+    private int[] find(String q, int from) {
+        // Short queries are found whole in the index. Longer ones need every piece, so the rarest one has the fewest
+        // entries to check
+        if (q.length() <= GRAM) return tail(grams.get(q), from);
+        int[] candidates = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            int[] ids = tail(grams.get(q.substring(i, i + GRAM)), from);
+            if (candidates == null || ids.length < candidates.length) candidates = ids;
+        }
+        return filter(candidates, q);
+    }
+
+    private static int[] tail(Postings postings, int from) {
+        return postings == null ? NONE : postings.from(from);
+    }
+
+    private int[] filter(int[] ids, String query) {
+        int[] ret = new int[ids.length];
+        int size = 0;
+        for (int id : ids) if (keys.get(id).contains(query)) ret[size++] = id;
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    /** Turns ids into positions in the current snapshot, leaving out the entries that aren't in it.
+     */
+    private int[] rows(int[] ids) {
+        int[] ret = new int[ids.length];
+        int size = 0;
+        for (int id : ids) if (positions[id] != -1) ret[size++] = positions[id];
+        ret = size == ret.length ? ret : Arrays.copyOf(ret, size);
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    private static String normalize(String s) {
+        return s.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Growable list of ids, in ascending order
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        void add(int id) {
+            if (size != 0 && ids[size - 1] == id) return; // Same piece twice in a key
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        /** Returns the ids from the given one onwards.
+         */
+        int[] from(int id) {
+            int start = Arrays.binarySearch(ids, 0, size, id);
+            if (start < 0) start = -start - 1;
+            return Arrays.copyOfRange(ids, start, size);
+        }
+    }
+}
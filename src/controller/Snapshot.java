@@ -0,0 +1,57 @@
+package controller;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only view of a controller collection, as it was at a given version. The same instance is handed out to every
+ * caller until the underlying collection changes, so asking for it repeatedly doesn't copy anything.
+ * Any attempt to modify it throws {@link UnsupportedOperationException}.
+ */
+public final class Snapshot<T> extends AbstractSet<T> {
+
+    private final Object[] items;
+    private final long version;
+
+    Snapshot(Object[] items, long version) {
+        this.items = items;
+        this.version = version;
+    }
+
+    /** Version of the collection this snapshot was taken from. Increases every time the collection changes, so two
+     * snapshots with the same version hold the same objects.
+     */
+    public long version() {
+        return version;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) items[index];
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < items.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (next >= items.length) throw new NoSuchElementException();
+                return (T) items[next++];
+            }
+        };
+    }
+}
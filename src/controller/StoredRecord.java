@@ -0,0 +1,8 @@
+package controller;
+
+import java.util.Collection;
+
+/**
+ * A record as found in storage, along with the key it's stored under.
+ */
+record StoredRecord(String key, Collection<String> fields) {}
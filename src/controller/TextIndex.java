@@ -0,0 +1,231 @@
+package controller;
+
+import other.util.LongMap;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Positional inverted index over free text. Every word of a document is indexed along with where it appears, so
+ * phrases can be matched as well as single words. Matches are ranked with BM25: documents mentioning a word more
+ * often rank first, and rare words weigh more than common ones.
+ * <p>
+ * Documents can be added again, or removed, at any time. Only their own entries are touched.
+ */
+public final class TextIndex<D> {
+
+    public record Hit<D>(D document, double score) {}
+
+    /**
+     * Positions of a word in a single document, in ascending order
+     */
+    private record Posting(int doc, int[] positions) {}
+
+    // BM25 parameters, the usual ones
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /**
+     * Positions skipped between the fields of a document, so that phrases don't match across them
+     */
+    private static final int FIELD_GAP = 16;
+
+    private final Map<D, Integer> ids = new HashMap<>();
+    // By document id. Ids of removed documents are given out again
+    private final List<D> documents = new ArrayList<>();
+    private final List<String[]> words = new ArrayList<>();
+    private int[] lengths = new int[16];
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private long totalLength = 0;
+
+    private final Map<String, LongMap<Posting>> postings = new HashMap<>();
+
+    /** Indexes a document, replacing whatever it held before.
+     * @param fields Every piece of text of the document
+     */
+    public void put(D document, Iterable<String> fields) {
+        remove(document);
+        Map<String, List<Integer>> found = new LinkedHashMap<>();
+        int position = 0;
+        for (String field : fields) {
+            if (field == null) continue;
+            for (String word : tokenize(field)) found.computeIfAbsent(word, w -> new ArrayList<>()).add(position++);
+            position += FIELD_GAP;
+        }
+        int length = 0;
+        for (List<Integer> p : found.values()) length += p.size();
+        if (length == 0) return;
+
+        int id = free.isEmpty() ? documents.size() : free.pop();
+        if (id == documents.size()) {
+            documents.add(null);
+            words.add(null);
+        }
+        if (id >= lengths.length) lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, id + 1));
+        ids.put(document, id);
+        documents.set(id, document);
+        words.set(id, found.keySet().toArray(new String[0]));
+        lengths[id] = length;
+        totalLength += length;
+        found.forEach((word, p) -> postings.computeIfAbsent(word, w -> new LongMap<>())
+                .put(id, new Posting(id, p.stream().mapToInt(Integer::intValue).toArray())));
+    }
+
+    /** Removes a document from the index.
+     * @return false if it wasn't indexed.
+     */
+    public boolean remove(D document) {
+        Integer id = ids.remove(document);
+        if (id == null) return false;
+        for (String word : words.get(id)) {
+            LongMap<Posting> p = postings.get(word);
+            p.remove(id);
+            if (p.isEmpty()) postings.remove(word);
+        }
+        totalLength -= lengths[id];
+        documents.set(id, null);
+        words.set(id, null);
+        free.push(id);
+        return true;
+    }
+
+    public boolean contains(D document) {
+        return ids.containsKey(document);
+    }
+
+    /** Returns the amount of documents indexed.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    public void clear() {
+        ids.clear();
+        documents.clear();
+        words.clear();
+        free.clear();
+        postings.clear();
+        totalLength = 0;
+    }
+
+    /** Finds the documents best matching a query. Every word is searched on its own, and words between double quotes
+     * are searched as a phrase: all of them, next to each other, in order. Documents matching any of them are
+     * ranked, the ones matching more, and rarer, words first. Case and punctuation are ignored.
+     * @param limit Maximum amount of documents returned
+     * @param filter Documents to consider
+     * @return The best documents, best first.
+     */
+    public List<Hit<D>> search(String query, int limit, Predicate<? super D> filter) {
+        if (ids.isEmpty() || limit <= 0) return List.of();
+        double averageLength = (double) totalLength / ids.size();
+        double[] scores = new double[documents.size()];
+        List<Integer> matched = new ArrayList<>();
+
+        for (String[] clause : parse(query)) {
+            Map<Integer, Integer> frequencies = frequencies(clause);
+            // Smoothed so that words in every document still count a little
+            double idf = Math.log(1 + (ids.size() - frequencies.size() + 0.5) / (frequencies.size() + 0.5));
+            frequencies.forEach((doc, tf) -> {
+                if (!filter.test(documents.get(doc))) return;
+                if (scores[doc] == 0) matched.add(doc);
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+            });
+        }
+
+        // Best ones kept on a heap, the worst of them on top
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(d -> scores[d]).thenComparing(Comparator.reverseOrder());
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, matched.size()) + 1, order);
+        for (int doc : matched) {
+            best.add(doc);
+            if (best.size() > limit) best.poll();
+        }
+        List<Hit<D>> ret = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int doc = best.poll();
+            ret.add(new Hit<>(documents.get(doc), scores[doc]));
+        }
+        Collections.reverse(ret);
+        return ret;
+    }
+
+    /** Returns how many times each document holds the words of a clause, next to each other and in order.
+     */
+    private Map<Integer, Integer> frequencies(String[] clause) {
+        Map<Integer, Integer> ret = new HashMap<>();
+        List<LongMap<Posting>> lists = lists(clause);
+        if (lists == null) return ret;
+        // Documents are taken from the rarest word
+        int rarest = 0;
+        for (int i = 1; i != lists.size(); i++) if (lists.get(i).size() < lists.get(rarest).size()) rarest = i;
+        for (Posting p : lists.get(rarest)) {
+            if (clause.length == 1) {
+                ret.put(p.doc(), p.positions().length);
+                continue;
+            }
+            Posting[] others = new Posting[clause.length];
+            boolean all = true;
+            for (int i = 0; i != clause.length && all; i++) {
+                others[i] = lists.get(i).get(p.doc());
+                all = others[i] != null;
+            }
+            if (!all) continue;
+            int count = 0;
+            for (int start : others[0].positions()) {
+                boolean phrase = true;
+                for (int i = 1; i != clause.length && phrase; i++)
+                    phrase = Arrays.binarySearch(others[i].positions(), start + i) >= 0;
+                if (phrase) count++;
+            }
+            if (count != 0) ret.put(p.doc(), count);
+        }
+        return ret;
+    }
+
+    /** Returns the postings of every word of a clause, or null if any of them isn't indexed at all.
+     */
+    private List<LongMap<Posting>> lists(String[] clause) {
+        List<LongMap<Posting>> ret = new ArrayList<>(clause.length);
+        for (String word : clause) {
+            LongMap<Posting> p = postings.get(word);
+            if (p == null) return null;
+            ret.add(p);
+        }
+        return ret;
+    }
+
+    /** Splits a query into its clauses: every word outside quotes, and every quoted phrase. Words that tokenize into
+     * several ones (such as "Mk-2") are phrases too.
+     */
+    static List<String[]> parse(String query) {
+        List<String[]> ret = new ArrayList<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i != parts.length; i++) {
+            if (i % 2 == 1) {
+                List<String> phrase = tokenize(parts[i]);
+                if (!phrase.isEmpty()) ret.add(phrase.toArray(new String[0]));
+                continue;
+            }
+            for (String word : parts[i].trim().split("\\s+")) {
+                List<String> tokens = tokenize(word);
+                if (!tokens.isEmpty()) ret.add(tokens.toArray(new String[0]));
+            }
+        }
+        return ret;
+    }
+
+    /** Splits text into lower case words, made of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> ret = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start == -1) start = i;
+            else if (!word && start != -1) {
+                ret.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return ret;
+    }
+}
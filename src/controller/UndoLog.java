@@ -0,0 +1,148 @@
+package controller;
+
+import java.util.*;
+
+/**
+ * Undo and redo history of the controller's operations. Every entry only holds the records the operation changed,
+ * as they were before and after it, so undoing costs as much as the operation changed.
+ * <p>
+ * The history is kept within a memory budget. When it's exceeded, the oldest entries are coalesced (an object
+ * changed by both keeps a single before and after), and dropped if that doesn't help.
+ */
+class UndoLog {
+
+    private static final String MORE = " and more";
+
+    /**
+     * A single record changed by an operation. A null record means there was none, the object was created or deleted.
+     */
+    record Change(String region, String key, Collection<String> before, Collection<String> after) {
+        long size() {
+            return 64 + size(region) + size(key) + size(before) + size(after);
+        }
+
+        private static long size(Collection<String> record) {
+            if (record == null) return 0;
+            long ret = 32;
+            for (String s : record) ret += 8 + size(s);
+            return ret;
+        }
+
+        private static long size(String s) {
+            return s == null ? 0 : 40 + 2L * s.length();
+        }
+    }
+
+    record Entry(String operation, List<Change> changes, long size) {
+        Entry(String operation, List<Change> changes) {
+            this(operation, changes, changes.stream().mapToLong(Change::size).sum());
+        }
+    }
+
+    private final Deque<Entry> undo = new ArrayDeque<>();
+    private final Deque<Entry> redo = new ArrayDeque<>();
+    private long budget;
+    private long size = 0;
+
+    UndoLog(long budget) {
+        this.budget = budget;
+    }
+
+    /** Adds a new operation. Whatever was undone can't be redone anymore.
+     */
+    void add(String operation, List<Change> changes) {
+        for (Entry e : redo) size -= e.size();
+        redo.clear();
+        Entry e = new Entry(operation, changes);
+        undo.addLast(e);
+        size += e.size();
+        trim();
+    }
+
+    /** Moves the last operation to the redo stack.
+     * @return The operation to undo, or null if there's none.
+     */
+    Entry undo() {
+        Entry e = undo.pollLast();
+        if (e != null) redo.addLast(e);
+        return e;
+    }
+
+    /** Moves the last undone operation back.
+     * @return The operation to redo, or null if there's none.
+     */
+    Entry redo() {
+        Entry e = redo.pollLast();
+        if (e != null) undo.addLast(e);
+        return e;
+    }
+
+    String peekUndo() {
+        Entry e = undo.peekLast();
+        return e == null ? null : e.operation();
+    }
+
+    String peekRedo() {
+        Entry e = redo.peekLast();
+        return e == null ? null : e.operation();
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    void setBudget(long budget) {
+        this.budget = budget;
+        trim();
+    }
+
+    void clear() {
+        undo.clear();
+        redo.clear();
+        size = 0;
+    }
+
+    /** Coalesces or drops the oldest entries until the history fits the budget.
+     */
+    private void trim() {
+        while (size > budget && !undo.isEmpty()) {
+            Entry first = undo.pollFirst();
+            Entry second = undo.pollFirst();
+            if (second == null) {
+                // A single operation bigger than the budget can't be kept
+                size -= first.size();
+                continue;
+            }
+            Entry merged = coalesce(first, second);
+            if (merged.size() < first.size() + second.size()) {
+                undo.addFirst(merged);
+                size += merged.size() - first.size() - second.size();
+            } else {
+                undo.addFirst(second);
+                size -= first.size();
+            }
+        }
+        // Redo entries come from the undo history, they're dropped once nothing else is left
+        while (size > budget && !redo.isEmpty()) size -= redo.pollFirst().size();
+    }
+
+    /** Turns two consecutive entries into one: every record keeps its state from before the first one, and from
+     * after the second one.
+     */
+    private static Entry coalesce(Entry first, Entry second) {
+        Map<List<String>, Change> changes = new LinkedHashMap<>();
+        for (Change c : first.changes()) changes.put(List.of(c.region(), c.key()), c);
+        for (Change c : second.changes()) {
+            changes.merge(List.of(c.region(), c.key()), c, (a, b) -> new Change(a.region(), a.key(), a.before(), b.after()));
+        }
+        List<Change> ret = new ArrayList<>(changes.size());
+        // Records that ended up the way they started aren't changes anymore
+        for (Change c : changes.values()) if (!Objects.equals(c.before(), c.after())) ret.add(c);
+        String operation = first.operation().endsWith(MORE) ? first.operation() : first.operation() + MORE;
+        return new Entry(operation, ret);
+    }
+}
@@ -0,0 +1,85 @@
+package controller;
+
+import other.util.LongMap;
+import vessels.Vessel;
+
+import java.util.*;
+
+/**
+ * Registry indexed by vessel id. The index is a primitive {@link LongMap}, so lookups by id don't box.
+ * Ids are expected to be unique, but a clashing vessel is still kept, with a warning: the first one registered under
+ * an id is the one returned by {@link VesselRegistry#get(long)}, and the rest wait in line until it's removed.
+ */
+class VesselRegistry extends Registry<Vessel> {
+
+    private final LongMap<Vessel> index = new LongMap<>();
+    /**
+     * Vessels whose id was already taken when they were added
+     */
+    private final List<Vessel> shadowed = new LinkedList<>();
+
+    public Vessel get(long id) {
+        return index.get(id);
+    }
+
+    @Override
+    protected boolean insert(Vessel value) {
+        Vessel taken = index.putIfAbsent(value.getId(), value);
+        if (taken == null) return true;
+        if (taken == value || shadowed.contains(value)) return false;
+        System.err.println("WARNING: Vessel id " + value.getId() + " is used more than once, only the first one is found by id");
+        shadowed.add(value);
+        return true;
+    }
+
+    @Override
+    protected boolean delete(Vessel value) {
+        long id = value.getId();
+        if (!index.remove(id, value)) return shadowed.remove(value);
+        // Next in line takes over the id
+        for (Iterator<Vessel> it = shadowed.iterator(); it.hasNext(); ) {
+            Vessel v = it.next();
+            if (v.getId() == id) {
+                index.put(id, v);
+                it.remove();
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        if (!(value instanceof Vessel v)) return false;
+        return index.get(v.getId()) == v || (!shadowed.isEmpty() && shadowed.contains(v));
+    }
+
+    @Override
+    public int size() {
+        return index.size() + shadowed.size();
+    }
+
+    @Override
+    protected void wipe() {
+        index.clear();
+        shadowed.clear();
+    }
+
+    @Override
+    protected Iterator<Vessel> members() {
+        if (shadowed.isEmpty()) return index.iterator();
+        Iterator<Vessel> indexed = index.iterator();
+        Iterator<Vessel> rest = Collections.unmodifiableList(shadowed).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return indexed.hasNext() || rest.hasNext();
+            }
+
+            @Override
+            public Vessel next() {
+                return indexed.hasNext() ? indexed.next() : rest.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package export;
+
+import controller.GUIController;
+import controller.LoadMode;
+import storage.StorageEngine;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Exports every kerbal, mission, concept, vessel and crashed vessel to a file, streaming one object at a time.
+ * <p>
+ * Can be run on its own: {@code java export.CareerExport <jsonl|csv> <file> [load mode] [storage engine]}. Loading
+ * lazily keeps memory use flat regardless of the career's size.
+ */
+public final class CareerExport {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CareerExport() {}
+
+    /**
+     * @return Amount of objects exported
+     */
+    public static int export(GUIController controller, File target, ExportFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            CareerWriter writer = format.open(out);
+            writer.begin();
+            int[] count = {0};
+            IOException[] failure = {null};
+            controller.visitAll((region, object) -> {
+                if (failure[0] != null) return;
+                try {
+                    writer.write(region, object);
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            writer.end();
+            return count[0];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CareerExport <jsonl|csv> <file> [load mode] [storage engine]");
+            return;
+        }
+        ExportFormat format = ExportFormat.valueOf(args[0].toUpperCase(Locale.ROOT));
+        LoadMode mode = args.length > 2 ? LoadMode.valueOf(args[2].toUpperCase(Locale.ROOT)) : LoadMode.LAZY;
+        StorageEngine engine = args.length > 3 ? StorageEngine.valueOf(args[3].toUpperCase(Locale.ROOT)) : StorageEngine.V100;
+
+        GUIController controller = new GUIController(mode, engine.open());
+        long start = System.nanoTime();
+        int count = export(controller, new File(args[1]), format);
+        System.out.println("Exported " + count + " objects in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+}
@@ -0,0 +1,59 @@
+package export;
+
+import kerbals.Kerbal;
+import missions.Mission;
+import other.KSPObject;
+import vessels.Concept;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes objects one at a time, as they're visited. Nothing but the current object is kept around, so the output
+ * can be as large as needed.
+ * <p>
+ * Every object is written as its {@link KSPObject#getFields()}, followed by the fields of its nested objects (flight
+ * logs, crew details, ...).
+ */
+public abstract class CareerWriter {
+
+    protected final Writer out;
+
+    protected CareerWriter(Writer out) {
+        this.out = out;
+    }
+
+    /** Writes whatever goes before the first object.
+     */
+    public void begin() throws IOException {}
+
+    /**
+     * @param region Region the object is stored in
+     */
+    public abstract void write(String region, KSPObject object) throws IOException;
+
+    /** Writes whatever goes after the last object, and flushes.
+     */
+    public void end() throws IOException {
+        out.flush();
+    }
+
+    /** Returns the nested objects, by name. Only those with their own fields are included.
+     */
+    protected static Map<String, List<? extends KSPObject>> children(KSPObject object) {
+        Map<String, List<? extends KSPObject>> ret = new LinkedHashMap<>();
+        if (object instanceof Kerbal k) {
+            ret.put("log", k.getLog());
+            ret.put("condecorations", k.getCondecorations());
+        } else if (object instanceof Mission m) {
+            ret.put("crew", List.copyOf(m.getCrewDetails()));
+            ret.put("events", m.getEvents());
+        } else if (object instanceof Concept c) {
+            ret.put("iterations", c.getIterations());
+        }
+        return ret;
+    }
+}
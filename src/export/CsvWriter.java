@@ -0,0 +1,80 @@
+package export;
+
+import other.KSPObject;
+import other.util.Field;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One row per field, so every object fits the same columns:
+ * <pre>
+ * region,key,child,child_index,field,value
+ * Kerbals,3,,,Name,Jebediah Kerman
+ * Kerbals,3,log,0,Mission,Mun 1
+ * </pre>
+ * Values are quoted as needed (RFC 4180).
+ */
+public class CsvWriter extends CareerWriter {
+
+    public CsvWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        out.write("region,key,child,child_index,field,value\r\n");
+    }
+
+    @Override
+    public void write(String region, KSPObject object) throws IOException {
+        String key = object.getStorageKey();
+        rows(region, key, null, -1, object);
+        for (Map.Entry<String, List<? extends KSPObject>> e : children(object).entrySet()) {
+            int i = 0;
+            for (KSPObject child : e.getValue()) {
+                if (child != null) rows(region, key, e.getKey(), i, child);
+                i++;
+            }
+        }
+    }
+
+    private void rows(String region, String key, String child, int index, KSPObject object) throws IOException {
+        for (Field f : object.getFields()) {
+            cell(region);
+            out.write(',');
+            cell(key);
+            out.write(',');
+            cell(child);
+            out.write(',');
+            if (index >= 0) out.write(Integer.toString(index));
+            out.write(',');
+            cell(f.getName());
+            out.write(',');
+            cell(f.getValue());
+            out.write("\r\n");
+        }
+    }
+
+    private void cell(String s) throws IOException {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i != s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i != s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,28 @@
+package export;
+
+import java.io.Writer;
+
+/**
+ * Formats the career can be exported to.
+ */
+public enum ExportFormat {
+    JSONL(".jsonl"),
+    CSV(".csv");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public CareerWriter open(Writer out) {
+        return switch (this) {
+            case JSONL -> new JsonLinesWriter(out);
+            case CSV -> new CsvWriter(out);
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package export;
+
+import other.KSPObject;
+import other.util.Field;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One JSON object per line:
+ * <pre>
+ * {"region":"Kerbals","key":"3","fields":[["Name","Jebediah Kerman"],...],"log":[[["Mission","Mun 1"],...],...]}
+ * </pre>
+ * Fields are written as name/value pairs, since names may repeat.
+ */
+public class JsonLinesWriter extends CareerWriter {
+
+    public JsonLinesWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void write(String region, KSPObject object) throws IOException {
+        out.write("{\"region\":");
+        string(region);
+        out.write(",\"key\":");
+        string(object.getStorageKey());
+        out.write(",\"fields\":");
+        fields(object);
+        for (Map.Entry<String, List<? extends KSPObject>> e : children(object).entrySet()) {
+            out.write(',');
+            string(e.getKey());
+            out.write(":[");
+            boolean first = true;
+            for (KSPObject child : e.getValue()) {
+                if (child == null) continue; // Corrupt entries are decoded as null
+                if (!first) out.write(',');
+                fields(child);
+                first = false;
+            }
+            out.write(']');
+        }
+        out.write("}\n");
+    }
+
+    private void fields(KSPObject object) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Field f : object.getFields()) {
+            if (!first) out.write(',');
+            out.write('[');
+            string(f.getName());
+            out.write(',');
+            string(f.getValue());
+            out.write(']');
+            first = false;
+        }
+        out.write(']');
+    }
+
+    private void string(String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i != s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                    else out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -1,17 +1,35 @@
 package gui;
 
 import controller.GUIController;
+import controller.PendingSave;
+import controller.SearchIndex;
+import controller.Snapshot;
+import kerbals.Kerbal;
+import missions.Mission;
 import other.interfaces.Editable;
 import other.KSPObject;
 import other.display.MainSearchCellRenderer;
 import other.display.KSPObjectTableModel;
+import other.display.SnapshotListModel;
+
+import vessels.Concept;
+import vessels.Vessel;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
 public class MainScreen extends KSPGUI {
 
@@ -22,6 +40,15 @@ public class MainScreen extends KSPGUI {
     private static final String CRASHED_INSTANCE_LIST = "Crashed vessels";
     // TODO add new item: edit here
 
+    /**
+     * Amount of entries the search list cells are sized after
+     */
+    private static final int CELL_SAMPLE = 256;
+    /**
+     * Amount of records decoded at a time while a category is listed in lazy mode
+     */
+    private static final int SEARCH_CHUNK = 200;
+
     private JPanel mainPanel;
 
     // Main window components
@@ -49,10 +76,30 @@ public class MainScreen extends KSPGUI {
 
 
     // Custom main components
-    private final DefaultListModel<KSPObject> searchModel = new DefaultListModel<>();
+    private final SnapshotListModel<KSPObject> searchModel = new SnapshotListModel<>();
     private final KSPObjectTableModel tableModel = new KSPObjectTableModel();
     private final DefaultComboBoxModel<String> comboBoxModel = new DefaultComboBoxModel<>();
     private String currentSelection;
+    /**
+     * Category the search list is showing, null if none
+     */
+    private String listed;
+    /**
+     * Decodes a category in the background, in lazy mode. Cancelled whenever another category is picked
+     */
+    private SwingWorker<Snapshot<? extends KSPObject>, Snapshot<? extends KSPObject>> searchLoader;
+
+    // Search box. The form has no room for it, so it goes on top of the search list
+    private final JTextField searchField = new JTextField();
+    /**
+     * Index of the category being shown, built the first time something is searched in it, and kept up to date with
+     * its snapshots from then on
+     */
+    private SearchIndex<KSPObject> searchIndex;
+    /**
+     * Last search made on the index, null if the search box is empty
+     */
+    private SearchIndex.Result searchResult;
 
     public MainScreen(GUIController controller) {
         super(controller, MAIN_SCREEN);
@@ -78,6 +125,8 @@ public class MainScreen extends KSPGUI {
         // Search result list requires a model to insert and remove data
         searchList.setModel(searchModel);
         searchList.setCellRenderer(new MainSearchCellRenderer());
+        searchField.setToolTipText("Search by name, or by id for vessels");
+        searchScrollPane.setColumnHeaderView(searchField);
 
         // Table requires a specialized model to display all types of data
         valuesTable.setModel(tableModel);
@@ -103,20 +152,23 @@ public class MainScreen extends KSPGUI {
             if (edit == null) return;
 
             currentSelection = edit;
-            searchModel.removeAllElements();
-            switch (edit) {
-                case KERBAL_LIST -> // Add astronauts to list
-                        searchModel.addAll(controller.getKerbals());
-                case MISSION_LIST -> // Add missions to list
-                        searchModel.addAll(controller.getMissions());
-                case VESSEL_CONCEPT_LIST -> // Add vessel concepts to list
-                        searchModel.addAll(controller.getConcepts());
-                case VESSEL_INSTANCE_LIST -> // Add vessel instances to list
-                        searchModel.addAll(controller.getVessels());
-                case CRASHED_INSTANCE_LIST -> // Add crashed instances to list
-                        searchModel.addAll(controller.getCrashedVessels());
-                // TODO add new item: edit here
+            populate(edit);
+        });
+
+        // Search box, filters the list as it's typed in
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                if (listed != null) list(listed, searchModel.getSnapshot());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                if (listed != null) list(listed, searchModel.getSnapshot());
             }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { }
         });
 
         // Create button listener
@@ -200,10 +252,28 @@ public class MainScreen extends KSPGUI {
             controller.ready();
         });
 
+        // Undo and redo shortcuts
+        InputMap keys = mainPanel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        mainPanel.getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (controller.undo()) reset();
+            }
+        });
+        mainPanel.getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (controller.redo()) reset();
+            }
+        });
+
         // Search selection listener
         searchList.addListSelectionListener(e -> {
             KSPObject object = searchList.getSelectedValue();
             if (object == null) return;
+            controller.touch(object);
 
             // Values
             tableModel.setItem(object);
@@ -214,13 +284,37 @@ public class MainScreen extends KSPGUI {
             else descriptionArea.setText(object.getDescription());
         });
 
-        // Save listener
+        // Save listener. The file is prepared and written in the background, the app can still be used meanwhile
         saveChangesButton.addActionListener(e -> {
-            if (controller.saveChanges()) {
-                say("Changes succesfully saved!");
-            } else say("There was an error while saving");
+            String text = saveChangesButton.getText();
+            saveChangesButton.setEnabled(false);
+            SwingWorker<Void, Void> worker = new SwingWorker<>() {
+                @Override
+                protected Void doInBackground() throws IOException {
+                    PendingSave save = controller.prepareSave();
+                    int total = Math.max(1, save.getRecordCount());
+                    save.write(n -> setProgress(n * 100 / total));
+                    return null;
+                }
 
-            reset();
+                @Override
+                protected void done() {
+                    saveChangesButton.setText(text);
+                    saveChangesButton.setEnabled(true);
+                    try {
+                        get();
+                        say("Changes succesfully saved!");
+                    } catch (InterruptedException | ExecutionException ex) {
+                        ex.printStackTrace();
+                        say("There was an error while saving");
+                    }
+                    reset();
+                }
+            };
+            worker.addPropertyChangeListener(ev -> {
+                if ("progress".equals(ev.getPropertyName())) saveChangesButton.setText("Saving... " + ev.getNewValue() + "%");
+            });
+            worker.execute();
         });
 
         // Discard listener
@@ -234,18 +328,142 @@ public class MainScreen extends KSPGUI {
         });
     }
 
+    /** Shows a category in the search list. The list is a view over the controller's snapshot, so nothing is copied,
+     * and showing the same category again only updates the entries that changed. If there are records still to be
+     * decoded, a background worker decodes them in chunks, and the list shows each chunk as soon as it's ready. Any
+     * worker still running is cancelled, and stops after its current chunk.
+     */
+    private void populate(String selection) {
+        if (searchLoader != null) searchLoader.cancel(false);
+        searchLoader = null;
+        if (controller.getPendingCount() == 0) {
+            list(selection, fetch(selection));
+            return;
+        }
+
+        SwingWorker<Snapshot<? extends KSPObject>, Snapshot<? extends KSPObject>> loader = new SwingWorker<>() {
+            @Override
+            protected Snapshot<? extends KSPObject> doInBackground() {
+                GUIController.Listing<? extends KSPObject> listing;
+                do {
+                    if (isCancelled()) return null;
+                    listing = fetch(selection, SEARCH_CHUNK);
+                    if (listing == null) return null;
+                    publish(listing.snapshot());
+                } while (!listing.complete());
+                return listing.snapshot();
+            }
+
+            @Override
+            protected void process(List<Snapshot<? extends KSPObject>> chunks) {
+                if (isCancelled()) return; // Published before a newer category was picked
+                // Chunks published meanwhile come all at once, the last one has them all
+                list(selection, chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                if (searchLoader == this) searchLoader = null;
+                if (isCancelled()) return; // A newer category was picked
+                try {
+                    list(selection, get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        };
+        searchLoader = loader;
+        loader.execute();
+    }
+
+    private Snapshot<? extends KSPObject> fetch(String selection) {
+        return switch (selection) {
+            case KERBAL_LIST -> controller.getKerbals(); // Add astronauts to list
+            case MISSION_LIST -> controller.getMissions(); // Add missions to list
+            case VESSEL_CONCEPT_LIST -> controller.getConcepts(); // Add vessel concepts to list
+            case VESSEL_INSTANCE_LIST -> controller.getVessels(); // Add vessel instances to list
+            case CRASHED_INSTANCE_LIST -> controller.getCrashedVessels(); // Add crashed instances to list
+            // TODO add new item: edit here
+            default -> null;
+        };
+    }
+
+    /** Same as {@link MainScreen#fetch(String)}, decoding at most the given amount of records.
+     */
+    private GUIController.Listing<? extends KSPObject> fetch(String selection, int amount) {
+        return switch (selection) {
+            case KERBAL_LIST -> controller.getKerbals(amount);
+            case MISSION_LIST -> controller.getMissions(amount);
+            case VESSEL_CONCEPT_LIST -> controller.getConcepts(amount);
+            case VESSEL_INSTANCE_LIST -> controller.getVessels(amount);
+            case CRASHED_INSTANCE_LIST -> controller.getCrashedVessels(amount);
+            // TODO add new item: edit here
+            default -> null;
+        };
+    }
+
+    private void list(String selection, Snapshot<? extends KSPObject> snapshot) {
+        if (!selection.equals(listed)) {
+            searchIndex = null;
+            searchResult = null;
+        }
+        if (snapshot == null) searchModel.clear();
+        else if (selection.equals(listed)) searchModel.update(snapshot, match(snapshot));
+        else searchModel.show(snapshot, match(snapshot));
+        listed = snapshot == null ? null : selection;
+        fitCells();
+    }
+
+    /** Returns the positions of the snapshot that match the search box, or null if it's empty. A newer snapshot only
+     * has its new entries indexed, such as the next chunk of a lazy listing, and only those are searched on top of the
+     * previous matches. Typing further only goes through the previous matches as well.
+     */
+    private int[] match(Snapshot<? extends KSPObject> snapshot) {
+        if (searchField.getText().isBlank()) {
+            searchResult = null;
+            return null;
+        }
+        if (searchIndex == null) searchIndex = new SearchIndex<>(MainScreen::searchKey);
+        searchIndex.update(snapshot);
+        searchResult = searchIndex.search(searchField.getText(), searchResult);
+        return searchResult == null ? null : searchResult.rows();
+    }
+
+    private static String searchKey(KSPObject object) {
+        if (object instanceof Kerbal k) return k.getName();
+        if (object instanceof Mission m) return m.getName();
+        if (object instanceof Concept c) return c.getName();
+        if (object instanceof Vessel v) return Long.toString(v.getId());
+        return object.getTextRepresentation();
+    }
+
+    /** Sizes the search list cells after the first few entries. Otherwise, the list renders every single entry to
+     * work out its own size.
+     */
+    private void fitCells() {
+        ListCellRenderer<? super KSPObject> renderer = searchList.getCellRenderer();
+        int width = -1;
+        int height = -1;
+        for (int i = 0; i < Math.min(CELL_SAMPLE, searchModel.getSize()); i++) {
+            Dimension d = renderer.getListCellRendererComponent(searchList, searchModel.getElementAt(i), i, false, false).getPreferredSize();
+            width = Math.max(width, d.width);
+            height = Math.max(height, d.height);
+        }
+        searchList.setFixedCellWidth(width);
+        searchList.setFixedCellHeight(height);
+    }
+
     /**
      * Reset routine for the main screen. Called whenever the screen switches over to some other one.
      */
     private void reset() {
-        // Default list: show astronauts
-        searchModel.removeAllElements();
-        searchModel.addAll(controller.getKerbals());
-
         // Default combo box: show astronauts
         selectionComboBox.setSelectedItem(KERBAL_LIST);
         currentSelection = KERBAL_LIST;
 
+        // Default list: show astronauts. Whatever the combo box started filling is cancelled
+        populate(KERBAL_LIST);
+
         // Default description
         descriptionArea.setText("Notes about the item will be shown here...");
         revalidate();
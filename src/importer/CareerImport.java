@@ -0,0 +1,153 @@
+package importer;
+
+import controller.GUIController;
+import controller.LoadMode;
+import kerbals.Kerbal;
+import missions.Mission;
+import other.KSPObject;
+import other.util.Schema;
+import other.util.StoredFields;
+import storage.StorageEngine;
+import vessels.Concept;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Imports kerbals, missions and concepts in bulk. Records are read in batches, and every batch is decoded (and thus
+ * validated) in parallel. Once the whole file is in, valid objects are handed to the controller all at once without
+ * linking them, and then everything is linked in a single pass, see {@link GUIController#insertAll} and
+ * {@link GUIController#linkImported}.
+ * <p>
+ * Records use the stored layout of each entity: the description, then every field of its schema, by name (case
+ * insensitive). Values are written the way they're stored, so references are names and dates are stored dates.
+ * <p>
+ * Can be run on its own: {@code java importer.CareerImport <jsonl|csv> <file> [load mode] [storage engine]}, which
+ * saves the database afterwards.
+ */
+public final class CareerImport {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final String DESCRIPTION = "DESCRIPTION";
+
+    private CareerImport() {}
+
+    /** Either the decoded object or the reason it couldn't be.
+     */
+    private record Decoded(ImportRecord record, KSPObject object, String error) {}
+
+    public static ImportReport importFile(GUIController controller, File source, ImportFormat format) throws IOException {
+        try (RecordReader reader = format.open(Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8))) {
+            return importRecords(controller, reader, DEFAULT_BATCH_SIZE, "Import " + source.getName());
+        }
+    }
+
+    /**
+     * @param batchSize Amount of records read and decoded at a time
+     * @param operation Name the import is journaled under
+     */
+    public static ImportReport importRecords(GUIController controller, RecordReader reader, int batchSize, String operation) throws IOException {
+        ImportReport report = new ImportReport();
+        List<Decoded> decoded = new ArrayList<>();
+        List<ImportRecord> batch = new ArrayList<>(batchSize);
+        boolean done = false;
+        while (!done) {
+            batch.clear();
+            while (batch.size() != batchSize) {
+                ImportRecord r;
+                try {
+                    r = reader.next();
+                } catch (MalformedRecordException e) {
+                    report.rejected(e.getLine(), e.getReason());
+                    continue;
+                }
+                if (r == null) {
+                    done = true;
+                    break;
+                }
+                batch.add(r);
+            }
+
+            // Decoding only creates objects, so it can run on any thread. Inserting can't
+            decoded.addAll(batch.parallelStream().map(r -> decode(controller, r)).toList());
+        }
+
+        // Inserted all at once, as a single change to the controller
+        List<KSPObject> objects = new ArrayList<>(decoded.size());
+        for (Decoded d : decoded) if (d.object() != null) objects.add(d.object());
+        List<KSPObject> imported = controller.insertAll(objects);
+        Set<KSPObject> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+        inserted.addAll(imported);
+        for (Decoded d : decoded) {
+            if (d.object() == null) report.rejected(d.record().line(), d.error());
+            else if (!inserted.contains(d.object())) report.duplicate(d.record().line(), d.object().getTextRepresentation());
+            else report.imported(regionName(d.object()));
+        }
+
+        report.setLinkReport(controller.linkImported(imported, operation));
+        return report;
+    }
+
+    private static Decoded decode(GUIController controller, ImportRecord record) {
+        Map<String, String> values = new HashMap<>();
+        record.values().forEach((k, v) -> values.put(k.toUpperCase(Locale.ROOT), v));
+        try {
+            KSPObject object = switch (record.region().toUpperCase(Locale.ROOT)) {
+                case "KERBALS" -> decode(Kerbal.SCHEMA, values, f -> new Kerbal(controller, f));
+                case "MISSIONS" -> decode(Mission.SCHEMA, values, f -> new Mission(controller, f));
+                case "CONCEPTS" -> decode(Concept.SCHEMA, values, f -> new Concept(controller, f));
+                default -> throw new IllegalArgumentException("Unknown region " + record.region());
+            };
+            // Has to be storable as well, or the next save would fail
+            try {
+                object.toStorableCollection();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Can't be stored, some of its entries are invalid", e);
+            }
+            return new Decoded(record, object, null);
+        } catch (RuntimeException e) {
+            return new Decoded(record, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static <F extends Enum<F>, T> T decode(Schema<F> schema, Map<String, String> values, Function<StoredFields<F>, T> decoder) {
+        StoredFields<F> fields = schema.write(values.getOrDefault(DESCRIPTION, ""));
+        for (F f : schema.getFields()) {
+            String value = values.get(f.name());
+            if (value == null) throw new IllegalArgumentException("Missing " + schema.getEntity() + " field " + f.name().toLowerCase(Locale.ROOT));
+            fields.set(f, value);
+        }
+        // Read back, the same way stored records are
+        return decoder.apply(schema.read(fields.toList()));
+    }
+
+    private static String regionName(KSPObject object) {
+        if (object instanceof Kerbal) return "Kerbals";
+        if (object instanceof Mission) return "Missions";
+        return "Concepts";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CareerImport <jsonl|csv> <file> [load mode] [storage engine]");
+            return;
+        }
+        ImportFormat format = ImportFormat.valueOf(args[0].toUpperCase(Locale.ROOT));
+        LoadMode mode = args.length > 2 ? LoadMode.valueOf(args[2].toUpperCase(Locale.ROOT)) : LoadMode.SEQUENTIAL;
+        StorageEngine engine = args.length > 3 ? StorageEngine.valueOf(args[3].toUpperCase(Locale.ROOT)) : StorageEngine.V100;
+
+        GUIController controller = new GUIController(mode, engine.open());
+        long start = System.nanoTime();
+        ImportReport report = importFile(controller, new File(args[1]), format);
+        long time = System.nanoTime() - start;
+        for (ImportReport.Rejected r : report.getRejected()) System.err.println("WARNING: Line " + r.line() + " not imported: " + r.reason());
+        System.out.println(report);
+        System.out.println("Imported in " + time / 1_000_000 + "ms");
+        if (!controller.saveChanges()) System.err.println("WARNING: Unable to save the imported objects");
+    }
+}
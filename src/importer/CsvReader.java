@@ -0,0 +1,100 @@
+package importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comma separated values, quoted as in RFC 4180. The first row names the columns: "region", then any stored field
+ * names. Files can mix regions, each row only uses the columns its region needs:
+ * <pre>
+ * region,description,name,male,...,vessel,crew,...
+ * Kerbals,Test pilot,Jebediah,true,...,,,...
+ * Missions,,Mun 1,,...,4,...
+ * </pre>
+ * Empty cells mean the field is missing.
+ */
+public class CsvReader implements RecordReader {
+
+    private final BufferedReader in;
+    private int lineNumber = 0;
+    private List<String> header;
+    private int regionColumn;
+
+    public CsvReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (header == null) {
+            header = row();
+            if (header == null) return null;
+            regionColumn = header.indexOf("region");
+            if (regionColumn < 0) throw new IOException("No region column in the header");
+        }
+
+        List<String> row;
+        do {
+            row = row();
+            if (row == null) return null;
+        } while (row.size() == 1 && row.get(0).isEmpty());
+        int line = lineNumber;
+
+        if (row.size() != header.size())
+            throw new MalformedRecordException(line, "expected " + header.size() + " cells, got " + row.size());
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i != row.size(); i++)
+            if (i != regionColumn && !row.get(i).isEmpty()) values.put(header.get(i), row.get(i));
+        return new ImportRecord(line, row.get(regionColumn), values);
+    }
+
+    /** Reads a whole row, which may span several lines if a quoted cell has line breaks in it.
+     * @return The row's cells, or null at the end of the file.
+     */
+    private List<String> row() throws IOException {
+        String line = in.readLine();
+        if (line == null) return null;
+        lineNumber++;
+        int start = lineNumber;
+
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) break;
+                // Line break inside a quoted cell
+                line = in.readLine();
+                if (line == null) throw new MalformedRecordException(start, "unterminated quote");
+                lineNumber++;
+                cell.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') cell.append(c);
+                else if (i < line.length() && line.charAt(i) == '"') {
+                    cell.append('"');
+                    i++;
+                } else quoted = false;
+            } else if (c == '"') quoted = true;
+            else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else cell.append(c);
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
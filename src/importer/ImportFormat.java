@@ -0,0 +1,18 @@
+package importer;
+
+import java.io.BufferedReader;
+
+/**
+ * Formats a career can be imported from.
+ */
+public enum ImportFormat {
+    JSONL,
+    CSV;
+
+    public RecordReader open(BufferedReader in) {
+        return switch (this) {
+            case JSONL -> new JsonLinesReader(in);
+            case CSV -> new CsvReader(in);
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package importer;
+
+import java.util.Map;
+
+/**
+ * A single object read from an import file, before it's decoded.
+ * @param line Line the record starts at, for reports
+ * @param region Region the object goes to ("Kerbals", "Missions" or "Concepts")
+ * @param values Stored fields by name, see {@link other.util.Schema}. Missing fields are absent
+ */
+public record ImportRecord(int line, String region, Map<String, String> values) {}
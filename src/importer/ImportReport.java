@@ -0,0 +1,73 @@
+package importer;
+
+import controller.LinkReport;
+
+import java.util.*;
+
+/**
+ * Result of a bulk import: what was imported, what was left out and why, and the references that couldn't be
+ * resolved afterwards.
+ */
+public class ImportReport {
+
+    /**
+     * A record left out of the import.
+     * @param line Line the record starts at
+     * @param reason Why it was left out
+     */
+    public record Rejected(int line, String reason) {}
+
+    private final Map<String, Integer> imported = new TreeMap<>();
+    private final List<Rejected> rejected = new ArrayList<>();
+    private int duplicates = 0;
+    private LinkReport linkReport = new LinkReport();
+
+    void imported(String region) {
+        imported.merge(region, 1, Integer::sum);
+    }
+
+    void rejected(int line, String reason) {
+        rejected.add(new Rejected(line, reason));
+    }
+
+    void duplicate(int line, String name) {
+        duplicates++;
+        rejected(line, name + " already exists");
+    }
+
+    void setLinkReport(LinkReport linkReport) {
+        this.linkReport = linkReport;
+    }
+
+    /** Returns the amount of objects imported into each region.
+     */
+    public Map<String, Integer> getImportedCounts() {
+        return Collections.unmodifiableMap(imported);
+    }
+
+    public int getImportedCount() {
+        int ret = 0;
+        for (int i : imported.values()) ret += i;
+        return ret;
+    }
+
+    /** Returns every record left out, including duplicates, in the order they were read.
+     */
+    public List<Rejected> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    public int getDuplicateCount() {
+        return duplicates;
+    }
+
+    public LinkReport getLinkReport() {
+        return linkReport;
+    }
+
+    @Override
+    public String toString() {
+        return getImportedCount() + " imported " + imported + ", " + rejected.size() + " rejected (" + duplicates +
+                " duplicates), " + linkReport;
+    }
+}
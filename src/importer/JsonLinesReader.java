@@ -0,0 +1,138 @@
+package importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One flat JSON object per line, holding the region and the stored fields by name:
+ * <pre>
+ * {"region":"Kerbals","description":"...","name":"Jebediah","male":true,"job":"Pilot",...}
+ * </pre>
+ * Numbers and booleans are taken as written, null means the field is missing. Blank lines are skipped.
+ */
+public class JsonLinesReader implements RecordReader {
+
+    private final BufferedReader in;
+    private int lineNumber = 0;
+
+    // Current line
+    private String s;
+    private int pos;
+
+    public JsonLinesReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            lineNumber++;
+            if (line == null) return null;
+        } while (line.isBlank());
+
+        s = line;
+        pos = 0;
+        Map<String, String> values = new HashMap<>();
+        try {
+            expect('{');
+            skipSpace();
+            if (peek() != '}') {
+                do {
+                    skipSpace();
+                    String name = string();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    String value = value();
+                    if (value != null) values.put(name, value);
+                    skipSpace();
+                } while (accept(','));
+            }
+            expect('}');
+            skipSpace();
+            if (pos != s.length()) throw error("unexpected " + s.charAt(pos));
+        } catch (IndexOutOfBoundsException e) {
+            throw error("unexpected end of line");
+        }
+
+        String region = values.remove("region");
+        if (region == null) throw error("no region");
+        return new ImportRecord(lineNumber, region, values);
+    }
+
+    private String value() throws MalformedRecordException {
+        char c = peek();
+        if (c == '"') return string();
+        if (c == '{' || c == '[') throw error("nested values aren't supported");
+        int start = pos;
+        while (pos < s.length() && ",} \t".indexOf(s.charAt(pos)) < 0) pos++;
+        String literal = s.substring(start, pos);
+        if (literal.equals("null")) return null;
+        if (literal.isEmpty()) throw error("missing value");
+        return literal;
+    }
+
+    private String string() throws MalformedRecordException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = s.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = s.charAt(pos++);
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("bad escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("bad escape \\" + e);
+            }
+        }
+    }
+
+    private char peek() {
+        return s.charAt(pos);
+    }
+
+    private boolean accept(char c) {
+        if (pos < s.length() && s.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) throws MalformedRecordException {
+        if (!accept(c)) throw error("expected " + c);
+    }
+
+    private void skipSpace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private MalformedRecordException error(String message) {
+        return new MalformedRecordException(lineNumber, message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
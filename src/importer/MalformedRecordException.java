@@ -0,0 +1,26 @@
+package importer;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link RecordReader} when a record can't be parsed. The record is skipped, and reading can go on.
+ */
+public class MalformedRecordException extends IOException {
+
+    private final int line;
+    private final String reason;
+
+    public MalformedRecordException(int line, String reason) {
+        super("Line " + line + ": " + reason);
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,17 @@
+package importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads import records one at a time.
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * @return The next record, or null once there are none left.
+     * @throws MalformedRecordException If the next record can't be parsed. It's skipped, and the one after it is read
+     * on the next call.
+     */
+    ImportRecord next() throws IOException;
+}
@@ -3,14 +3,16 @@ package kerbals;
 import missions.Mission;
 import other.*;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Field;
 import other.util.KSPDate;
+import other.util.Tokenizer;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 public class Condecoration extends KSPObject implements KSPObjectListener {
 
@@ -43,22 +45,28 @@ public class Condecoration extends KSPObject implements KSPObjectListener {
     }
 
     public static String toString(Condecoration c) {
-        StringJoiner joiner = new StringJoiner(DELIMITER);
-
-        joiner.add(c.kerbalName);
-        joiner.add(c.missionName);
-        joiner.add(c.date.toStorableString());
-        joiner.add(c.mention);
+        return write(new StringBuilder(), c).toString();
+    }
 
-        return joiner.toString();
+    /** Writes the condecoration straight into a builder.
+     */
+    static StringBuilder write(StringBuilder sb, Condecoration c) {
+        sb.append(c.kerbalName).append(DELIMITER).append(c.missionName).append(DELIMITER);
+        return c.date.writeStorable(sb).append(DELIMITER).append(c.mention);
     }
 
     public static Condecoration fromString(ControllerInterface c, String s) {
-        if (s.split(DELIMITER).length != ENCODE_FIELD_AMOUNT) return null;
-        String[] split = s.split(DELIMITER);
+        String[] split = Tokenizer.split(s, DELIMITER);
+        if (split.length != ENCODE_FIELD_AMOUNT) return null;
         return new Condecoration(c, split[0], split[1], KSPDate.fromString(c, split[2]), split[3]);
     }
 
+    @Override
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        if (mention != null) text.accept(mention);
+    }
+
     @Override
     public List<Field> getFields() {
         List<Field> fields = new LinkedList<>();
@@ -87,13 +95,21 @@ public class Condecoration extends KSPObject implements KSPObjectListener {
     }
 
     @Override
-    public void ready() {
-        mission = getController().getMission(missionName);
+    public void link(ReferenceResolver resolver) {
+        mission = resolver.resolveMission(this, missionName);
         if (mission != null) mission.addEventListener(this);
-        kerbal = getController().getKerbal(kerbalName);
+        kerbal = resolver.resolveKerbal(this, kerbalName);
         if (kerbal != null) kerbal.addEventListener(this);
     }
 
+    @Override
+    public void unlink() {
+        if (mission != null) mission.removeEventListener(this);
+        if (kerbal != null) kerbal.removeEventListener(this);
+        mission = null;
+        kerbal = null;
+    }
+
     @Override
     public void onDeletion(KSPObjectDeletionEvent event) {
         // Mission deletion
@@ -101,12 +117,14 @@ public class Condecoration extends KSPObject implements KSPObjectListener {
             mission = null;
             missionName = "[REDACTED]";
             classifiedReason = event.getStatus();
+            markDirty();
         }
         // Kerbal deletion
         if (event.getSource() instanceof Kerbal k) {
             kerbal = null;
             kerbalName = "[REDACTED]";
             inactiveReason = event.getStatus();
+            markDirty();
         }
     }
 }
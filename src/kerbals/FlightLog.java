@@ -3,13 +3,14 @@ package kerbals;
 import missions.Mission;
 import other.*;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Field;
+import other.util.Tokenizer;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.StringJoiner;
 
 public class FlightLog extends KSPObject implements KSPObjectListener {
 
@@ -34,18 +35,19 @@ public class FlightLog extends KSPObject implements KSPObjectListener {
     }
 
     public static FlightLog fromString(ControllerInterface controller, String s) {
-        String[] split = s.split(DELIMITER);
+        String[] split = Tokenizer.split(s, DELIMITER);
         if (split.length != ENCODE_FIELD_AMOUNT) return null;
         return new FlightLog(controller, split);
     }
 
     public static String toString(FlightLog log) {
-        StringJoiner joiner = new StringJoiner(DELIMITER);
-
-        joiner.add(log.missionName);
-        joiner.add(Float.toString(log.expGained));
+        return write(new StringBuilder(), log).toString();
+    }
 
-        return joiner.toString();
+    /** Writes the log entry straight into a builder.
+     */
+    static StringBuilder write(StringBuilder sb, FlightLog log) {
+        return sb.append(log.missionName).append(DELIMITER).append(log.expGained);
     }
 
 
@@ -58,11 +60,17 @@ public class FlightLog extends KSPObject implements KSPObjectListener {
     }
 
     @Override
-    public void ready() {
-        mission = getController().getMission(missionName);
+    public void link(ReferenceResolver resolver) {
+        mission = resolver.resolveMission(this, missionName);
         if (mission != null) mission.addEventListener(this);
     }
 
+    @Override
+    public void unlink() {
+        if (mission != null) mission.removeEventListener(this);
+        mission = null;
+    }
+
     @Override
     public List<Field> getFields() {
         List<Field> fields = new LinkedList<>();
@@ -84,6 +92,7 @@ public class FlightLog extends KSPObject implements KSPObjectListener {
         if (event.getSource() instanceof Mission) {
             mission = null;
             missionName = "[REDACTED]";
+            markDirty();
         }
     }
 }
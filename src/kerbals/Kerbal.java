@@ -3,19 +3,28 @@ package kerbals;
 import missions.Mission;
 import other.KSPObject;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Field;
+import other.util.FieldWriter;
 import other.util.KSPDate;
 import other.util.Location;
+import other.util.Schema;
+import other.util.StoredFields;
+import other.util.Tokenizer;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class Kerbal extends KSPObject implements KSPObjectListener {
 
     public static final String DELIMITER = ":k:";
-    public static final int ENCODE_FIELD_AMOUNT = 12; // ALWAYS ACCOUNT FOR DESCRIPTION
+
+    /** Stored fields, in order. The description goes first.
+     */
+    public enum Stored { NAME, MALE, BADASS, JOB, ORIGIN, HIRING_DATE, LOG, MISSION, CONDECORATIONS, EXPERIENCE, KIA }
+    public static final Schema<Stored> SCHEMA = new Schema<>("kerbal", Stored.class);
 
     // Persistent fields
     /**
@@ -88,34 +97,33 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
 
     }
 
-    /** Generates a kerbal from a list of fields stores in persistence.
-     * @param fields List of fields
+    /** Generates a kerbal from its stored fields.
+     * @param fields Fields read with {@link Kerbal#SCHEMA}
      */
-    public Kerbal(ControllerInterface controller, List<String> fields) {
+    public Kerbal(ControllerInterface controller, StoredFields<Stored> fields) {
         super(controller);
-        this.name = fields.get(1);
-        this.male = Boolean.parseBoolean(fields.get(2));
-        this.badass = Boolean.parseBoolean(fields.get(3));
-        this.job = Job.fromString(fields.get(4));
-        this.origin = fields.get(5);
-        this.hiringDate = KSPDate.fromString(controller, fields.get(6));
-
-        List<FlightLog> result;
-        String field = fields.get(7);
-        if (field.equals("(none)")) result = new LinkedList<>();
-        else result = Arrays.stream(field.split(DELIMITER)).map(s -> FlightLog.fromString(controller, s)).collect(Collectors.toList());
+        this.name = fields.get(Stored.NAME);
+        this.male = fields.getBoolean(Stored.MALE);
+        this.badass = fields.getBoolean(Stored.BADASS);
+        this.job = Job.fromString(fields.get(Stored.JOB));
+        this.origin = fields.get(Stored.ORIGIN);
+        this.hiringDate = KSPDate.fromString(controller, fields.get(Stored.HIRING_DATE));
+
+        List<FlightLog> result = new LinkedList<>();
+        String field = fields.getOptional(Stored.LOG);
+        if (field != null)
+            for (String s : Tokenizer.split(field, DELIMITER)) result.add(FlightLog.fromString(controller, s));
         this.log = result;
-        this.mission = fields.get(8).equals("(none)") ? null :fields.get(8);
+        this.mission = fields.getOptional(Stored.MISSION);
 
-        List<Condecoration> result1;
-        String fields1 = fields.get(9);
-        if (fields1.equals("(none)")) result1 = new LinkedList<>();
-        else
-            result1 = Arrays.stream(fields1.split(DELIMITER)).map(s -> Condecoration.fromString(controller, s)).collect(Collectors.toList());
+        List<Condecoration> result1 = new LinkedList<>();
+        String fields1 = fields.getOptional(Stored.CONDECORATIONS);
+        if (fields1 != null)
+            for (String s : Tokenizer.split(fields1, DELIMITER)) result1.add(Condecoration.fromString(controller, s));
         this.condecorations = result1;
-        this.experience = Float.parseFloat(fields.get(10));
-        this.KIA = Boolean.parseBoolean(fields.get(11));
-        setDescription((fields.get(0)));
+        this.experience = fields.getFloat(Stored.EXPERIENCE);
+        this.KIA = fields.getBoolean(Stored.KIA);
+        setDescription(fields.getDescription());
     }
 
     // Logic methods
@@ -126,6 +134,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
         mission = m.getName();
         missionObj = m;
         m.addEventListener(this);
+        markDirty();
     } // edit for multiple missions
 
     // missionEnd()
@@ -136,6 +145,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
         // Add new entry to flight log, make it a listener, set new experience
         FlightLog fl = new FlightLog(getController(), mission, missionObj.getExperienceGained(this));
         fl.setDescription("Succesfully recovered from " + mission);
+        fl.setOwner(this);
         log.add(fl);
         missionObj.addEventListener(fl);
         experience += missionObj.getExperienceGained(this);
@@ -144,6 +154,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
         // No longer interested in this mission
         missionObj.removeEventListener(this);
         missionObj = null;
+        markDirty();
     } // edit (no mission finish, update milestones)
 
     /** Executed whenever the kerbal unfortunately goes KIA.
@@ -158,9 +169,11 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
         // Final log entry
         FlightLog fl = new FlightLog(getController(), this.mission == null ? "(none)" : this.mission, missionObj == null ? 0.0f : missionObj.getExperienceGained(this));
         fl.setDescription("KIA " + location.toString().substring(0, 1).toLowerCase(Locale.ROOT) + location.toString().substring(1) + " (+" + expGained + "):\n" + details);
+        fl.setOwner(this);
         log.add(fl);
 
         missionObj = null;
+        markDirty();
     }
 
     // switchVessel(old, new)
@@ -177,6 +190,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
     }
     public void setName(String name) {
         this.name = name;
+        markDirty();
     }
 
     public boolean isMale() {
@@ -184,6 +198,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
     }
     public void setMale(boolean male) {
         this.male = male;
+        markDirty();
     }
 
     public boolean isBadass() {
@@ -191,6 +206,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
     }
     public void setBadass(boolean badass) {
         this.badass = badass;
+        markDirty();
     }
 
     public Job getJob() {
@@ -198,6 +214,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
     }
     public void setJob(Job job) {
         this.job = job;
+        markDirty();
     }
 
     public String getOrigin() {
@@ -205,6 +222,7 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
     }
     public void setOrigin(String origin) {
         this.origin = origin;
+        markDirty();
     }
 
     public KSPDate getHiringDate() {
@@ -250,39 +268,65 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
 
     // Overrides
     @Override
-    public void ready() {
+    public void link(ReferenceResolver resolver) {
         // Set origin
-        originObj = getController().getMission(origin);
+        originObj = resolver.resolveMission(this, origin);
         if (originObj != null) originObj.addEventListener(this);
 
         // Set current mission
-        missionObj = mission == null ? null : getController().getMission(mission);
+        missionObj = mission == null ? null : resolver.resolveMission(this, mission);
         if (missionObj != null) missionObj.addEventListener(this);
+
+        // Log entries and honorable mentions
+        for (FlightLog l : log) if (l != null) {
+            l.setOwner(this);
+            l.link(resolver);
+        }
+        for (Condecoration c : condecorations) if (c != null) {
+            c.setOwner(this);
+            c.link(resolver);
+        }
+    }
+
+    @Override
+    public void unlink() {
+        if (originObj != null) originObj.removeEventListener(this);
+        if (missionObj != null) missionObj.removeEventListener(this);
+        originObj = null;
+        missionObj = null;
+        for (FlightLog l : log) if (l != null) l.unlink();
+        for (Condecoration c : condecorations) if (c != null) c.unlink();
     }
 
     @Override
     public Collection<String> toStorableCollection() {
-        Collection<String> ret = super.toStorableCollection();
-
-        ret.add(name);
-        ret.add(Boolean.toString(male));
-        ret.add(Boolean.toString(badass));
-        ret.add(job.toString());
-        ret.add(origin);
-        ret.add(hiringDate.toStorableString());
-
-        StringJoiner joiner = new StringJoiner(DELIMITER);
-        for (FlightLog log1 : log) joiner.add(FlightLog.toString(log1));
-        ret.add(joiner.toString().equals("") ? "(none)" : joiner.toString());
-        ret.add(mission == null ? "(none)" : mission);
-
-        StringJoiner joiner1 = new StringJoiner(DELIMITER);
-        for (Condecoration c : condecorations) joiner1.add(Condecoration.toString(c));
-        ret.add(joiner1.toString().equals("") ? "(none)" : joiner1.toString());
-        ret.add(Float.toString(experience));
-        ret.add(Boolean.toString(KIA));
-
-        return ret;
+        StoredFields<Stored> ret = SCHEMA.write(getDescription())
+                .set(Stored.NAME, name)
+                .set(Stored.MALE, male)
+                .set(Stored.BADASS, badass)
+                .set(Stored.JOB, job.toString())
+                .set(Stored.ORIGIN, origin)
+                .set(Stored.HIRING_DATE, hiringDate.toStorableString());
+
+        FieldWriter joiner = new FieldWriter(DELIMITER);
+        for (FlightLog log1 : log) FlightLog.write(joiner.next(), log1);
+        ret.set(Stored.LOG, joiner.toString("(none)"));
+        ret.setOptional(Stored.MISSION, mission);
+
+        joiner.clear();
+        for (Condecoration c : condecorations) Condecoration.write(joiner.next(), c);
+        ret.set(Stored.CONDECORATIONS, joiner.toString("(none)"));
+        ret.set(Stored.EXPERIENCE, experience);
+        ret.set(Stored.KIA, KIA);
+
+        return ret.toList();
+    }
+
+    @Override
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        for (FlightLog l : log) if (l != null) l.collectText(text);
+        for (Condecoration c : condecorations) if (c != null) c.collectText(text);
     }
 
     @Override
@@ -319,11 +363,13 @@ public class Kerbal extends KSPObject implements KSPObjectListener {
                 mission = "[REDACTED]";
                 missionObj = null;
                 System.err.println("WARNING: Kerbal " + name + " got his active mission \"" + m.getName() + "\" removed!");
+                markDirty();
             }
             // Origin mission
             if (m.equals(originObj)) {
                 origin = "[CLASSIFIED]";
                 originObj = null;
+                markDirty();
             }
         }
     }
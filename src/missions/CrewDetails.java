@@ -3,10 +3,12 @@ package missions;
 import kerbals.Kerbal;
 import other.*;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Field;
 import other.util.KSPDate;
+import other.util.Tokenizer;
 
 import java.util.*;
 
@@ -37,20 +39,22 @@ public class CrewDetails extends KSPObject implements KSPObjectListener {
     }
 
     public static CrewDetails fromString(ControllerInterface controller, String s) {
-        if (s.split(DELIMITER).length != ENCODE_FIELD_AMOUNT) return null;
-        return new CrewDetails(controller, new LinkedList<>(Arrays.asList(s.split(DELIMITER))));
+        String[] split = Tokenizer.split(s, DELIMITER);
+        if (split.length != ENCODE_FIELD_AMOUNT) return null;
+        return new CrewDetails(controller, Arrays.asList(split));
     }
 
     public static String toString(CrewDetails crewDetails) {
-        StringJoiner joiner = new StringJoiner(DELIMITER);
-
-        joiner.add(crewDetails.name);
-        joiner.add(crewDetails.getDescription() == null ? "(None)" : crewDetails.getDescription());
-        joiner.add(crewDetails.position);
-        joiner.add(crewDetails.boardTime.toStorableString());
-        joiner.add(Float.toString(crewDetails.expGained));
+        return write(new StringBuilder(), crewDetails).toString();
+    }
 
-        return joiner.toString();
+    /** Writes the crew details straight into a builder.
+     */
+    static StringBuilder write(StringBuilder sb, CrewDetails crewDetails) {
+        sb.append(crewDetails.name).append(DELIMITER);
+        sb.append(crewDetails.getDescription() == null ? "(None)" : crewDetails.getDescription()).append(DELIMITER);
+        sb.append(crewDetails.position).append(DELIMITER);
+        return crewDetails.boardTime.writeStorable(sb).append(DELIMITER).append(crewDetails.expGained);
     }
 
     public String getPosition() {
@@ -67,19 +71,26 @@ public class CrewDetails extends KSPObject implements KSPObjectListener {
 
     public void setExpGain(float expGained) {
         this.expGained = expGained;
+        markDirty();
     }
 
     @Override
-    public void ready() {
-        this.kerbal = getController().getKerbal(name);
+    public void link(ReferenceResolver resolver) {
+        this.kerbal = resolver.resolveKerbal(this, name);
         if (kerbal != null) kerbal.addEventListener(this);
     }
 
+    @Override
+    public void unlink() {
+        if (kerbal != null) kerbal.removeEventListener(this);
+        kerbal = null;
+    }
+
     @Override
     public List<Field> getFields() {
         List<Field> fields = new LinkedList<>();
 
-        fields.add(new Field("Name", name + " Kerman" + (kerbal.isKIA() ? " (KIA)" : "")));
+        fields.add(new Field("Name", name + " Kerman" + (kerbal != null && kerbal.isKIA() ? " (KIA)" : "")));
         fields.add(new Field("Position", position));
         fields.add(new Field("Board time", boardTime.getTextRepresentation(false)));
         fields.add(new Field("Experience gained", Float.toString(expGained)));
@@ -114,6 +125,7 @@ public class CrewDetails extends KSPObject implements KSPObjectListener {
         if (event.getSource() instanceof Kerbal k) {
             kerbal = null;
             name = "[REDACTED]";
+            markDirty();
         }
     }
 }
@@ -4,23 +4,32 @@ import controller.GUIController;
 import kerbals.Kerbal;
 import other.KSPObject;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.CelestialBody;
 import other.util.Field;
+import other.util.FieldWriter;
 import other.util.KSPDate;
 import other.util.Location;
+import other.util.Schema;
+import other.util.StoredFields;
+import other.util.Tokenizer;
 import vessels.Concept;
 import vessels.Vessel;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class Mission extends KSPObject implements KSPObjectListener {
 
-    public static final int ENCODE_FIELD_AMOUNT = 7; // ALWAYS ACCOUNT FOR DESCRIPTION
     private static final String DELIMITER = ":m:";
 
+    /** Stored fields, in order. The description goes first.
+     */
+    public enum Stored { NAME, VESSEL, CREW, START, EVENTS, ACTIVE }
+    public static final Schema<Stored> SCHEMA = new Schema<>("mission", Stored.class);
+
     // Persistent fields
     private String name;
     private long vesselId; // replace with vessels
@@ -77,43 +86,44 @@ public class Mission extends KSPObject implements KSPObjectListener {
         events = new LinkedList<>();
     }
 
-    /** Generate a mission from a list of fields stored in persistence. =
-     * @param fields List of fields
+    /** Generate a mission from its stored fields.
+     * @param fields Fields read with {@link Mission#SCHEMA}
      */
-    public Mission(GUIController controller, LinkedList<String> fields) {
+    public Mission(GUIController controller, StoredFields<Stored> fields) {
         super(controller);
-        this.name = fields.get(1);
-        this.vesselId = Long.parseLong(fields.get(2));
+        this.name = fields.get(Stored.NAME);
+        this.vesselId = fields.getLong(Stored.VESSEL);
 
         Map<String, CrewDetails> ret = new HashMap<>();
-        Set<String> entries = new HashSet<>(Arrays.asList(fields.get(3).split(DELIMITER)));
+        Set<String> entries = new HashSet<>(Arrays.asList(Tokenizer.split(fields.get(Stored.CREW), DELIMITER)));
         for (String e : entries) {
-            String[] pair = e.split("<>");
+            String[] pair = Tokenizer.split(e, "<>");
             if (pair.length != 2) continue;
             ret.put(pair[0], CrewDetails.fromString(getController(), pair[1]));
         }
         this.crew = ret;
-        this.start = KSPDate.fromString(controller, fields.get(4));
+        this.start = KSPDate.fromString(controller, fields.get(Stored.START));
 
         List<MissionEvent> result;
-        String s = fields.get(5);
-        if (s.equals("(none)")) {
+        String s = fields.getOptional(Stored.EVENTS);
+        if (s == null) {
             result = new LinkedList<>();
         } else {
             List<MissionEvent> ret1 = new LinkedList<>();
-            String[] events = s.split(DELIMITER);
+            String[] events = Tokenizer.split(s, DELIMITER);
             for (String event : events) ret1.add(MissionEvent.fromString(getController(), event));
             result = ret1;
         }
         this.events = result;
-        this.active = Boolean.parseBoolean(fields.get(6));
-        setDescription(fields.get(0));
+        this.active = fields.getBoolean(Stored.ACTIVE);
+        setDescription(fields.getDescription());
     }
 
     // Logic methods
     public void kerbalRescued(Kerbal kerbal, KSPDate dateRescued) {
         this.crew.put(kerbal.getName(), new CrewDetails(getController(), kerbal.getName(), "Rescued subject", dateRescued));
         logEvent(new MissionEvent(getController(), getName(),vesselObj.getLocation(), "Rescued " + kerbal.getName()));
+        markDirty();
     }
 
     /** Executed whenever a kerbal unfortunately goes KIA. This method assumes the cause of death to not be vessel crash.
@@ -142,6 +152,7 @@ public class Mission extends KSPObject implements KSPObjectListener {
      */
     public void recoverEnd(String status) {
         this.active = false;
+        markDirty();
 
         // All crew in vessel check
         if (crew.size() != vesselObj.getCrew().size())
@@ -162,6 +173,7 @@ public class Mission extends KSPObject implements KSPObjectListener {
      */
     public void catastrophicEnd(String status) {
         this.active = false;
+        markDirty();
 
         // All crew members + vessel should be gone
         if (!crewObjs.isEmpty()) System.err.println("WARNING: Total destruction mission end with kerbal objects still around. Mission: " + name + ", crew count: " + crewObjs.size());
@@ -174,7 +186,9 @@ public class Mission extends KSPObject implements KSPObjectListener {
     }
 
     public void logEvent(MissionEvent event) {
+        event.setOwner(this);
         events.add(event);
+        markDirty();
     }
 
     // addKerbals()
@@ -194,6 +208,10 @@ public class Mission extends KSPObject implements KSPObjectListener {
         return Collections.unmodifiableSet(crew.keySet());
     }
 
+    public Collection<CrewDetails> getCrewDetails() {
+        return Collections.unmodifiableCollection(crew.values());
+    }
+
     public CrewDetails getCrewDetails(Kerbal kerbal) {
         return crew.get(kerbal.getName());
     }
@@ -213,29 +231,36 @@ public class Mission extends KSPObject implements KSPObjectListener {
     // Overrides
     @Override
     public Collection<String> toStorableCollection() {
-        Collection<String> ret = super.toStorableCollection();
+        StoredFields<Stored> ret = SCHEMA.write(getDescription())
+                .set(Stored.NAME, name)
+                .set(Stored.VESSEL, vesselId);
 
-        ret.add(name);
-
-        ret.add(Long.toString(vesselId));
-        StringJoiner joiner = new StringJoiner(DELIMITER);
+        FieldWriter joiner = new FieldWriter(DELIMITER);
         for (Map.Entry<String, CrewDetails> e : crew.entrySet()) {
-            joiner.add(e.getKey() + "<>" + CrewDetails.toString(e.getValue()));
+            CrewDetails.write(joiner.next().append(e.getKey()).append("<>"), e.getValue());
         }
-        ret.add(joiner.toString());
-        ret.add(start.toStorableString());
+        ret.set(Stored.CREW, joiner.toString());
+        ret.set(Stored.START, start.toStorableString());
 
-        StringJoiner joiner1 = new StringJoiner(DELIMITER);
+        joiner.clear();
+        FieldWriter subj = new FieldWriter(MissionEvent.DELIMITER);
         for (MissionEvent event : events) {
-            Collection<String> det = event.toStorableCollection();
-            StringJoiner subj = new StringJoiner(MissionEvent.DELIMITER);
-            for (String s : det) subj.add(s);
-            joiner1.add(subj.toString());
+            if (event == null) continue; // Failed to decode
+            subj.clear();
+            for (String s : event.toStorableCollection()) subj.add(s);
+            joiner.add(subj.toString());
         }
-        ret.add(joiner1.toString().equals("") ? "(none)" : joiner1.toString());
-        ret.add(Boolean.toString(active));
+        ret.set(Stored.EVENTS, joiner.toString("(none)"));
+        ret.set(Stored.ACTIVE, active);
+
+        return ret.toList();
+    }
 
-        return ret;
+    @Override
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        for (CrewDetails details : crew.values()) if (details != null) details.collectText(text);
+        for (MissionEvent event : events) if (event != null) event.collectText(text);
     }
 
     @Override
@@ -253,28 +278,46 @@ public class Mission extends KSPObject implements KSPObjectListener {
         fields.add(new Field("In progress?", active ? "Yes" : "No"));
         for (Map.Entry<String, CrewDetails> e : crew.entrySet())
             fields.add(new Field(e.getValue().getPosition(), e.getKey() + " Kerman, boarded at " + e.getValue().getBoardTime().getTextRepresentation(false, false)));
-        for (MissionEvent ev : events) fields.add(new Field("Milestone", ev.getTextRepresentation()));
+        for (MissionEvent ev : events) if (ev != null) fields.add(new Field("Milestone", ev.getTextRepresentation()));
 
         return fields;
     }
 
     @Override
-    public void ready() {
+    public void link(ReferenceResolver resolver) {
         // Get vessel
-        vesselObj = getController().getInstance(vesselId);
-        if (vesselObj == null) vesselObj = getController().getCrashedInstance(vesselId);
+        vesselObj = resolver.resolveVessel(this, vesselId);
         if (vesselObj != null) vesselObj.addEventListener(this);
 
-        // Get crew
-        this.crewObjs = getController().getKerbals().stream()
-                .filter(c -> crew.containsKey(c.getName()))
-                .collect(Collectors.toSet());
-        for (Kerbal k : crewObjs) k.addEventListener(this);
+        // Get crew. Missing kerbals are reported by the resolver
+        this.crewObjs = new HashSet<>();
+        for (String s : crew.keySet()) {
+            Kerbal k = resolver.resolveKerbal(this, s);
+            if (k != null) {
+                k.addEventListener(this);
+                crewObjs.add(k);
+            }
+        }
 
-        // Crew check
-        if (crewObjs.size() != crew.keySet().size())
-            System.err.println("WARNING: Crew member miscount in mission \"" + name + "\", this usually means that certain kerbals weren't found on the database.\n" +
-                    "Expected " + crew.keySet().size() + ", got " + crewObjs.size());
+        // Crew details and events
+        for (CrewDetails details : crew.values()) if (details != null) {
+            details.setOwner(this);
+            details.link(resolver);
+        }
+        for (MissionEvent event : events) if (event != null) {
+            event.setOwner(this);
+            event.link(resolver);
+        }
+    }
+
+    @Override
+    public void unlink() {
+        if (vesselObj != null) vesselObj.removeEventListener(this);
+        vesselObj = null;
+        if (crewObjs != null) for (Kerbal k : crewObjs) k.removeEventListener(this);
+        crewObjs = null;
+        for (CrewDetails details : crew.values()) if (details != null) details.unlink();
+        for (MissionEvent event : events) if (event != null) event.unlink();
     }
 
     @Override
@@ -286,6 +329,7 @@ public class Mission extends KSPObject implements KSPObjectListener {
             CrewDetails details = crew.get(k.getName());
             crew.remove(k.getName());
             crew.put("[REDACTED#" + k.hashCode() + "]", details);
+            markDirty();
         }
 
         // Vessel deleted
@@ -293,6 +337,7 @@ public class Mission extends KSPObject implements KSPObjectListener {
             System.err.println("WARNING: Vessel " + vi.getName() + "#" + vi.getId() + " deleted from mission " + name + " unexpectedly. A crash will most likely happen soon!");
             vesselObj = null;
             vesselId = 0;
+            markDirty();
         }
     }
 }
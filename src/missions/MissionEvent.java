@@ -2,14 +2,17 @@ package missions;
 
 import other.*;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Field;
+import other.util.FieldWriter;
 import other.util.Location;
+import other.util.Tokenizer;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 public class MissionEvent extends KSPObject implements KSPObjectListener {
 
@@ -37,24 +40,35 @@ public class MissionEvent extends KSPObject implements KSPObjectListener {
     }
 
     public static MissionEvent fromString(ControllerInterface c, String s) {
-        if (s.split(DELIMITER).length != ENCODE_FIELD_AMOUNT) return null;
-        return new MissionEvent(c, s.split(DELIMITER));
+        String[] split = Tokenizer.split(s, DELIMITER);
+        if (split.length != ENCODE_FIELD_AMOUNT) return null;
+        return new MissionEvent(c, split);
     }
 
     public static String toString(MissionEvent me) {
-        StringJoiner joiner = new StringJoiner(DELIMITER);
+        return new FieldWriter(DELIMITER)
+                .add(me.missionName)
+                .add(Location.toString(me.oldLocation))
+                .add(me.details)
+                .toString();
+    }
 
-        joiner.add(me.missionName);
-        joiner.add(Location.toString(me.oldLocation));
-        joiner.add(me.details);
+    @Override
+    public void link(ReferenceResolver resolver) {
+        mission = resolver.resolveMission(this, missionName);
+        if (mission != null) mission.addEventListener(this);
+    }
 
-        return joiner.toString();
+    @Override
+    public void unlink() {
+        if (mission != null) mission.removeEventListener(this);
+        mission = null;
     }
 
     @Override
-    public void ready() {
-        mission = getController().getMission(missionName);
-        if (mission != null) mission.addEventListener(this);
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        if (details != null) text.accept(details);
     }
 
     @Override
@@ -79,6 +93,7 @@ public class MissionEvent extends KSPObject implements KSPObjectListener {
         if (event.getSource() instanceof Mission) {
             missionName = "[REDACTED]";
             mission = null;
+            markDirty();
         }
     }
 }
@@ -1,20 +1,35 @@
 package other;
 
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.Displayable;
-import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 
 import java.util.Collection;
 import java.util.LinkedList;
-import java.util.Vector;
+import java.util.function.Consumer;
 
 public abstract class KSPObject implements Displayable {
 
     protected static final String DELIMITER = "::";
     private final ControllerInterface controller;
     private String description;
-    private final Vector<KSPObjectListener> listeners = new Vector<>();
+    /**
+     * Key the object is stored under. Null until it's saved for the first time
+     */
+    private String storageKey;
+    /**
+     * True if the object changed since it was last loaded or saved. New objects start dirty
+     */
+    private boolean dirty = true;
+    /**
+     * True if the object has changes that aren't recorded anywhere yet, neither in storage nor in the journal
+     */
+    private boolean pending = true;
+    /**
+     * Object this one is stored inside of, if any. Changes are reported to it instead
+     */
+    private KSPObject owner;
 
 
     public KSPObject(ControllerInterface controller) {
@@ -28,6 +43,14 @@ public abstract class KSPObject implements Displayable {
 
     public void setDescription(String description) {
         this.description = description;
+        markDirty();
+    }
+
+    /** Hands over every piece of free text the object holds, for full-text search. Objects stored inside this one
+     * hand over theirs too.
+     */
+    public void collectText(Consumer<String> text) {
+        if (description != null) text.accept(description);
     }
 
     public Collection<String> toStorableCollection() {
@@ -41,20 +64,92 @@ public abstract class KSPObject implements Displayable {
     }
 
 
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    /** Flags the object as needing to be saved again. Must be called whenever a persistent field changes.
+     * Objects stored inside another one flag their owner instead.
+     * <p>
+     * The controller is told about the first change made after the object was last recorded.
+     */
+    public void markDirty() {
+        if (owner != null) {
+            owner.markDirty();
+            return;
+        }
+        boolean notify = !pending;
+        dirty = true;
+        pending = true;
+        if (notify) controller.changed(this);
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /** Called once the object's current state is in storage.
+     */
+    public void markClean() {
+        dirty = false;
+        pending = false;
+    }
+
+    /** Called once the object's current state is in the journal. It still needs to be saved.
+     */
+    public void markRecorded() {
+        pending = false;
+    }
+
+    /** Sets the object this one is stored inside of, see {@link KSPObject#markDirty()}.
+     */
+    public void setOwner(KSPObject owner) {
+        this.owner = owner;
+    }
+
+    public KSPObject getOwner() {
+        return owner;
+    }
+
+    /** Records that the listener references this object, see {@link controller.ReferenceIndex}. Adding the same
+     * listener again does nothing.
+     */
     public void addEventListener(KSPObjectListener listener) {
-        listeners.add(listener);
+        controller.addReference(this, listener);
     }
 
     public void removeEventListener(KSPObjectListener listener) {
-        listeners.remove(listener);
+        controller.removeReference(this, listener);
+    }
+
+    /** Returns true if any other object is currently listening to this one, which means it's referenced somewhere.
+     */
+    public boolean isReferenced() {
+        return controller.isReferenced(this);
     }
 
     public void fireDeletionEvent(String status) {
-        for (KSPObjectListener listener : listeners) listener.onDeletion(new KSPObjectDeletionEvent(this, status));
+        controller.fireDeletion(this, status);
     }
 
     /** Indicates to the object that the controller has finished loading every {@link KSPObject} in memory. This allows
      * the current object to utilize the {@link KSPObject#controller} methods.
      */
-    public abstract void ready();
+    public void ready() {
+        link(controller);
+    }
+
+    /** Resolves the object's stored references (and the ones of the objects it contains) through the given resolver.
+     * Objects without references don't need to override this.
+     */
+    public void link(ReferenceResolver resolver) { }
+
+    /** Undoes {@link KSPObject#link(ReferenceResolver)}: stops listening to every object this one (and the objects it
+     * contains) refers to, so that it can be dropped from memory.
+     */
+    public void unlink() { }
 }
@@ -1,5 +1,6 @@
 package other.display;
 
+import other.KSPObject;
 import other.display.KSPObjectTableModel;
 import other.interfaces.Editable;
 
@@ -46,7 +47,9 @@ public class EditableKSPObjectTableModel extends KSPObjectTableModel {
     @Override
     public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
         if (columnIndex != 2) return;
-        object.setField(rowIndex, aValue);
+        // Through the controller, so that the edit can be undone
+        if (object instanceof KSPObject o) o.getController().edit(object, rowIndex, aValue);
+        else object.setField(rowIndex, aValue);
         model.setItem(object);
         fireTableCellUpdated(rowIndex, columnIndex);
         model.fireTableCellUpdated(rowIndex, columnIndex);
@@ -0,0 +1,99 @@
+package other.display;
+
+import controller.Snapshot;
+
+import javax.swing.*;
+
+/**
+ * List model that shows a controller {@link Snapshot} as is, without copying it. Switching to another snapshot is
+ * instant no matter how large it is, and updating to a newer version of the same collection only tells the list
+ * about the entries that actually changed.
+ * <p>
+ * The list can also be narrowed down to some positions of the snapshot, such as the ones found by a search.
+ */
+public class SnapshotListModel<T> extends AbstractListModel<T> {
+
+    private Snapshot<? extends T> snapshot;
+    /**
+     * Positions of the snapshot shown, in order. Null to show all of it
+     */
+    private int[] rows;
+
+    /** Shows a different collection, replacing every entry.
+     */
+    public void show(Snapshot<? extends T> next) {
+        show(next, null);
+    }
+
+    public void show(Snapshot<? extends T> next, int[] nextRows) {
+        clear();
+        snapshot = next;
+        rows = nextRows;
+        if (getSize() != 0) fireIntervalAdded(this, 0, getSize() - 1);
+    }
+
+    /** Shows a newer version of the collection being shown. Entries common to the start and the end of both versions
+     * are left alone, so selections and scrolling are kept, and only the ones in between are reported as changed,
+     * added or removed.
+     */
+    public void update(Snapshot<? extends T> next) {
+        update(next, null);
+    }
+
+    /** Same as {@link SnapshotListModel#update(Snapshot)}, showing only some positions of the new version.
+     */
+    public void update(Snapshot<? extends T> next, int[] nextRows) {
+        Snapshot<? extends T> previous = snapshot;
+        int[] previousRows = rows;
+        if (previous == null) {
+            show(next, nextRows);
+            return;
+        }
+        int oldSize = getSize();
+        snapshot = next;
+        rows = nextRows;
+        if ((previous == next || previous.version() == next.version()) && previousRows == nextRows) return;
+
+        int newSize = getSize();
+        int start = 0;
+        while (start < oldSize && start < newSize && at(previous, previousRows, start) == getElementAt(start)) start++;
+        int end = 0; // From the end, without going past the common start
+        while (end < oldSize - start && end < newSize - start
+                && at(previous, previousRows, oldSize - 1 - end) == getElementAt(newSize - 1 - end)) end++;
+
+        int removed = oldSize - start - end;
+        int added = newSize - start - end;
+        int changed = Math.min(removed, added);
+        if (changed != 0) fireContentsChanged(this, start, start + changed - 1);
+        if (removed > changed) fireIntervalRemoved(this, start + changed, start + removed - 1);
+        if (added > changed) fireIntervalAdded(this, start + changed, start + added - 1);
+    }
+
+    public void clear() {
+        int size = getSize();
+        snapshot = null;
+        rows = null;
+        if (size != 0) fireIntervalRemoved(this, 0, size - 1);
+    }
+
+    /** Returns the snapshot being shown, or null if there's none.
+     */
+    public Snapshot<? extends T> getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public int getSize() {
+        if (snapshot == null) return 0;
+        return rows == null ? snapshot.size() : rows.length;
+    }
+
+    @Override
+    public T getElementAt(int index) {
+        return at(snapshot, rows, index);
+    }
+
+    private static <T> T at(Snapshot<? extends T> snapshot, int[] rows, int index) {
+        return snapshot.get(rows == null ? index : rows[index]);
+    }
+}
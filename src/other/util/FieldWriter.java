@@ -0,0 +1,80 @@
+package other.util;
+
+/**
+ * Joins stored fields with a delimiter, same output as a {@link java.util.StringJoiner}. Nested values can be
+ * written straight into it through {@link FieldWriter#next()}, instead of being joined into a string of their own
+ * first, and numbers are appended without going through a string.
+ * <p>
+ * A writer can be reused after {@link FieldWriter#clear()}.
+ */
+public final class FieldWriter {
+
+    private final String delimiter;
+    private final StringBuilder sb;
+    private int fields = 0;
+
+    public FieldWriter(String delimiter) {
+        this(delimiter, 64);
+    }
+
+    public FieldWriter(String delimiter, int capacity) {
+        this.delimiter = delimiter;
+        this.sb = new StringBuilder(capacity);
+    }
+
+    /** Starts a new field.
+     * @return The builder to write the field into. Only append to it.
+     */
+    public StringBuilder next() {
+        if (fields++ != 0) sb.append(delimiter);
+        return sb;
+    }
+
+    public FieldWriter add(String s) {
+        next().append(s);
+        return this;
+    }
+
+    public FieldWriter add(int i) {
+        next().append(i);
+        return this;
+    }
+
+    public FieldWriter add(long l) {
+        next().append(l);
+        return this;
+    }
+
+    public FieldWriter add(float f) {
+        next().append(f);
+        return this;
+    }
+
+    public FieldWriter add(boolean b) {
+        next().append(b);
+        return this;
+    }
+
+    /** Amount of fields written.
+     */
+    public int size() {
+        return fields;
+    }
+
+    public FieldWriter clear() {
+        sb.setLength(0);
+        fields = 0;
+        return this;
+    }
+
+    /** Returns the joined fields, or the placeholder if that would be an empty string.
+     */
+    public String toString(String ifEmpty) {
+        return sb.length() == 0 ? ifEmpty : sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
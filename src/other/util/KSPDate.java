@@ -7,7 +7,6 @@ import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.StringJoiner;
 
 public class KSPDate extends KSPObject {
 
@@ -44,8 +43,11 @@ public class KSPDate extends KSPObject {
     }
 
     public KSPDate(ControllerInterface controller, String stored) {
+        this(controller, Tokenizer.split(stored, DELIMITER));
+    }
+
+    private KSPDate(ControllerInterface controller, String[] parts) {
         super(controller);
-        String[] parts = stored.split(DELIMITER);
         this.year = Integer.parseInt(parts[0]);
         this.day = Integer.parseInt(parts[1]);
         this.hour = Integer.parseInt(parts[2]);
@@ -79,23 +81,25 @@ public class KSPDate extends KSPObject {
     }
 
     public String toStorableString() {
-        return new StringJoiner(DELIMITER)
-                .add(Integer.toString(year))
-                .add(Integer.toString(day))
-                .add(Integer.toString(hour))
-                .add(Integer.toString(minute))
-                .add(Integer.toString(second))
-                .add(realDate.toString())
-                .toString();
+        return writeStorable(new StringBuilder(48)).toString();
     }
 
-    public static KSPDate fromString(ControllerInterface controller, String s) {
-        if (s.split(DELIMITER).length != ENCODE_FIELD_AMOUNT) return null;
-        return new KSPDate(controller, s);
+    /** Writes the storable string straight into a builder.
+     */
+    public StringBuilder writeStorable(StringBuilder sb) {
+        return sb.append(year).append(DELIMITER)
+                .append(day).append(DELIMITER)
+                .append(hour).append(DELIMITER)
+                .append(minute).append(DELIMITER)
+                .append(second).append(DELIMITER)
+                .append(realDate);
     }
 
-    @Override
-    public void ready() { }
+    public static KSPDate fromString(ControllerInterface controller, String s) {
+        String[] parts = Tokenizer.split(s, DELIMITER);
+        if (parts.length != ENCODE_FIELD_AMOUNT) return null;
+        return new KSPDate(controller, parts);
+    }
 
     @Override
     public List<Field> getFields() {
@@ -18,7 +18,7 @@ public class Location {
     }
 
     public static Location fromString(String s) {
-        String[] split = s.split(DELIMITER);
+        String[] split = Tokenizer.split(s, DELIMITER);
         if (split.length != ENCODE_FIELD_AMOUNT) return null;
         return new Location(Boolean.parseBoolean(split[0]), CelestialBody.valueOf(split[1]));
     }
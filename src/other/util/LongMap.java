@@ -0,0 +1,206 @@
+package other.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open addressing hash map with primitive long keys. Keys and values live in two flat arrays, so there's no boxing
+ * and no node per entry. Uses linear probing, and removals shift the following entries back instead of leaving
+ * tombstones behind.
+ * <p>
+ * Since 0 marks an empty slot, the 0 key (if any) is stored on the side.
+ */
+public class LongMap<V> implements Iterable<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    private boolean hasZero;
+    private V zeroValue;
+
+    public LongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        // Ids are random, but mix anyway so sequential keys don't cluster
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) return hasZero ? zeroValue : null;
+        int i = slot(key);
+        return keys[i] == 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) return hasZero;
+        return keys[slot(key)] != 0;
+    }
+
+    /** Associates the value with the key, replacing the previous value.
+     * @return The previous value, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZero) size++;
+            hasZero = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = slot(key);
+        if (keys[i] != 0) {
+            V old = (V) values[i];
+            values[i] = value;
+            return old;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) rehash(keys.length << 1);
+        return null;
+    }
+
+    /** Associates the value with the key, unless the key is already present.
+     * @return The current value, or null if the new one was inserted.
+     */
+    public V putIfAbsent(long key, V value) {
+        V current = get(key);
+        if (current != null || containsKey(key)) return current;
+        put(key, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZero) return null;
+            V old = zeroValue;
+            hasZero = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int i = slot(key);
+        if (keys[i] == 0) return null;
+        V old = (V) values[i];
+        delete(i);
+        return old;
+    }
+
+    /** Removes the entry only if the key is currently mapped to the given value (by identity).
+     */
+    public boolean remove(long key, V value) {
+        if (get(key) != value || !containsKey(key)) return false;
+        remove(key);
+        return true;
+    }
+
+    private void delete(int i) {
+        size--;
+        // Shift back every entry of the probe chain that would no longer be reachable
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == 0) break;
+            int home = hash(keys[j]) & mask;
+            // Move j into the gap if its home slot isn't cyclically between the gap and j
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i != oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int j = slot(oldKeys[i]);
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (keys.length > MIN_CAPACITY << 2) allocate(MIN_CAPACITY);
+        else {
+            Arrays.fill(keys, 0);
+            Arrays.fill(values, null);
+        }
+        hasZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /** Iterates over the values, in no particular order. The iterator doesn't support removal, and must not be
+     * used after the map is modified.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<>() {
+            private int next = hasZero ? -1 : advance(0);
+
+            private int advance(int from) {
+                while (from < keys.length && keys[from] == 0) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                V v = next == -1 ? zeroValue : (V) values[next];
+                next = advance(next + 1);
+                return v;
+            }
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package other.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Open addressing hash set of primitive longs. Same layout as {@link LongMap}, minus the values.
+ */
+public class LongSet {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean hasZero;
+
+    public LongSet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public LongSet(long... values) {
+        this();
+        for (long l : values) add(l);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) return hasZero;
+        return keys[slot(value)] != 0;
+    }
+
+    /**
+     * @return false if the value was already present.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(value);
+        if (keys[i] != 0) return false;
+        keys[i] = value;
+        if (++size > threshold) rehash(keys.length << 1);
+        return true;
+    }
+
+    /**
+     * @return false if the value wasn't present.
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int i = slot(value);
+        if (keys[i] == 0) return false;
+        size--;
+        // Backward shift, see LongMap
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == 0) break;
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        allocate(capacity);
+        for (long l : old) if (l != 0) keys[slot(l)] = l;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (hasZero) action.accept(0);
+        for (long l : keys) if (l != 0) action.accept(l);
+    }
+
+    public long[] toArray() {
+        long[] ret = new long[size];
+        int i = 0;
+        if (hasZero) i++; // Already 0
+        for (long l : keys) if (l != 0) ret[i++] = l;
+        return ret;
+    }
+
+    public LongSet copy() {
+        LongSet ret = new LongSet();
+        ret.keys = keys.clone();
+        ret.mask = mask;
+        ret.size = size;
+        ret.threshold = threshold;
+        ret.hasZero = hasZero;
+        return ret;
+    }
+
+    /** Primitive iterator over the values. Must not be used after the set is modified.
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private boolean zeroPending = hasZero;
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < keys.length && keys[from] == 0) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return zeroPending || next < keys.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (zeroPending) {
+                    zeroPending = false;
+                    return 0;
+                }
+                if (next >= keys.length) throw new NoSuchElementException();
+                long l = keys[next];
+                next = advance(next + 1);
+                return l;
+            }
+        };
+    }
+}
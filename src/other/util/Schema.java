@@ -0,0 +1,70 @@
+package other.util;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Field layout of a stored entity. The fields are the constants of an enum, in storage order, after the description
+ * every entity starts with. Records are copied into an array once, so fields are read by position instead of
+ * walking a list, and their amount is checked once per record.
+ * <pre>
+ * public enum Stored { NAME, JOB }
+ * public static final Schema&lt;Stored&gt; SCHEMA = new Schema&lt;&gt;("kerbal", Stored.class);
+ * </pre>
+ */
+public final class Schema<F extends Enum<F>> {
+
+    private final String entity;
+    private final F[] fields;
+
+    /**
+     * @param entity Name of the entity, for warnings
+     * @param fields Every field but the description, in storage order
+     */
+    public Schema(String entity, Class<F> fields) {
+        this.entity = entity;
+        this.fields = fields.getEnumConstants();
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    /** Amount of stored fields, description included.
+     */
+    public int size() {
+        return fields.length + 1;
+    }
+
+    /** Every field but the description, in storage order.
+     */
+    public List<F> getFields() {
+        return List.of(fields);
+    }
+
+    F fieldAt(int ordinal) {
+        return fields[ordinal];
+    }
+
+    /** Position of a field in the stored record. The description is always at 0.
+     */
+    public int indexOf(F field) {
+        return field.ordinal() + 1;
+    }
+
+    /** Wraps a stored record.
+     * @return The record's fields, or null if it doesn't have as many fields as the schema.
+     */
+    public StoredFields<F> read(Collection<String> stored) {
+        if (stored.size() != size()) return null;
+        return new StoredFields<>(this, stored.toArray(new String[0]));
+    }
+
+    /** Starts a new record to store. Every field must be set before it's turned into a list.
+     */
+    public StoredFields<F> write(String description) {
+        String[] values = new String[size()];
+        values[0] = description;
+        return new StoredFields<>(this, values, fields.length);
+    }
+}
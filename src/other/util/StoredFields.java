@@ -0,0 +1,107 @@
+package other.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stored record laid out by a {@link Schema}, backed by an array.
+ */
+public final class StoredFields<F extends Enum<F>> {
+
+    private static final String NONE = "(none)";
+
+    private final Schema<F> schema;
+    private final String[] values;
+    /**
+     * Fields not set yet, by ordinal. Only used when writing
+     */
+    private final boolean[] missing;
+    private int missingCount;
+
+    StoredFields(Schema<F> schema, String[] values) {
+        this.schema = schema;
+        this.values = values;
+        this.missing = null;
+    }
+
+    StoredFields(Schema<F> schema, String[] values, int fieldCount) {
+        this.schema = schema;
+        this.values = values;
+        this.missing = new boolean[fieldCount];
+        Arrays.fill(missing, true);
+        this.missingCount = fieldCount;
+    }
+
+    public String getDescription() {
+        return values[0];
+    }
+
+    public String get(F field) {
+        return values[schema.indexOf(field)];
+    }
+
+    /** Returns the field, or null if it's stored as "(none)".
+     */
+    public String getOptional(F field) {
+        String s = get(field);
+        return NONE.equals(s) ? null : s;
+    }
+
+    public boolean getBoolean(F field) {
+        return Boolean.parseBoolean(get(field));
+    }
+
+    public int getInt(F field) {
+        return Integer.parseInt(get(field));
+    }
+
+    public long getLong(F field) {
+        return Long.parseLong(get(field));
+    }
+
+    public float getFloat(F field) {
+        return Float.parseFloat(get(field));
+    }
+
+    public StoredFields<F> set(F field, String value) {
+        if (missing[field.ordinal()]) {
+            missing[field.ordinal()] = false;
+            missingCount--;
+        }
+        values[schema.indexOf(field)] = value;
+        return this;
+    }
+
+    /** Sets the field, storing nulls as "(none)".
+     */
+    public StoredFields<F> setOptional(F field, String value) {
+        return set(field, value == null ? NONE : value);
+    }
+
+    public StoredFields<F> set(F field, boolean value) {
+        return set(field, Boolean.toString(value));
+    }
+
+    public StoredFields<F> set(F field, int value) {
+        return set(field, Integer.toString(value));
+    }
+
+    public StoredFields<F> set(F field, long value) {
+        return set(field, Long.toString(value));
+    }
+
+    public StoredFields<F> set(F field, float value) {
+        return set(field, Float.toString(value));
+    }
+
+    /** Returns the fields in storage order. The list is backed by this record.
+     * @throws IllegalStateException If a field was never set.
+     */
+    public List<String> toList() {
+        if (missing != null && missingCount != 0) {
+            for (int i = 0; i != missing.length; i++)
+                if (missing[i]) throw new IllegalStateException(schema.getEntity() + " field " + schema.fieldAt(i) + " not set");
+        }
+        return Arrays.asList(values);
+    }
+}
@@ -0,0 +1,30 @@
+package storage;
+
+import java.util.*;
+
+/**
+ * Keeps the live regions in a map by upper case name, the way the manager does.
+ */
+abstract class AbstractBackend implements Backend {
+
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getRegions() {
+        Set<String> ret = new LinkedHashSet<>();
+        for (Region r : regions.values()) ret.add(r.getName());
+        return ret;
+    }
+
+    @Override
+    public Region getRegion(String name) {
+        return regions.computeIfAbsent(name.toUpperCase(Locale.ROOT), Region::new);
+    }
+
+    /** Replaces every live region with the given ones.
+     */
+    protected void load(Collection<Region> loaded) {
+        regions.clear();
+        for (Region r : loaded) regions.put(r.getName().toUpperCase(Locale.ROOT), r);
+    }
+}
@@ -0,0 +1,41 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Where the stored regions live. The controller only goes through this, so the database format (or whether there's
+ * a database file at all) can be picked at startup, see {@link StorageEngine}.
+ * <p>
+ * Regions are edited in memory. Changes only reach the storage when copies of the regions are written, which
+ * doesn't touch the live ones, so writing can run on any thread.
+ */
+public interface Backend {
+
+    /** Returns the name of every region.
+     */
+    Set<String> getRegions();
+
+    /** Returns a region, creating it if there's none. Names are case insensitive.
+     */
+    Region getRegion(String name);
+
+    /** Replaces the stored regions with the given ones. May be called from any thread, but only one write runs at
+     * a time.
+     * @param regions Copies of every region, see {@link Region#copy()}
+     * @param progress Receives the amount of records written so far
+     */
+    void write(Collection<Region> regions, IntConsumer progress) throws IOException;
+
+    /** Reads the stored regions again, dropping every change made to the live ones since.
+     */
+    void restore() throws IOException;
+
+    /** Returns the file the controller journals its changes to, or null if they shouldn't be journaled (nothing
+     * survives a restart anyway).
+     */
+    File getJournalFile();
+}
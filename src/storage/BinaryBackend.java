@@ -0,0 +1,42 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Database in the {@link BinaryStore} format. A V100 database can be converted with the {@link Migrator}.
+ */
+public class BinaryBackend extends AbstractBackend {
+
+    private final File file;
+
+    /** Opens the database, reading the file if it exists.
+     */
+    public BinaryBackend(File file) throws IOException {
+        this.file = file;
+        restore();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void write(Collection<Region> regions, IntConsumer progress) throws IOException {
+        BinaryStore.write(file, regions, progress);
+    }
+
+    @Override
+    public void restore() throws IOException {
+        if (file.exists()) load(BinaryStore.read(file));
+        else load(List.of());
+    }
+
+    @Override
+    public File getJournalFile() {
+        return new File(file.getPath() + ".journal");
+    }
+}
@@ -0,0 +1,237 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Binary replacement for the V100 text file. Strings are stored as UTF-8, prefixed by their length, instead of
+ * hex-encoded, and the file is written in bulk through a {@link FileChannel} and a direct buffer.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * int magic, int version, int region count, int directory length
+ * directory, per region: string name, long offset, long length, int item count
+ * region bodies, per item: string key, int field count, string... fields
+ * string: int byte length (-1 for null), UTF-8 bytes
+ * </pre>
+ * The directory lets a single region be read without going through the others, see {@link RegionFile}. Files
+ * written before the directory was added (version 1, regions one after another with their name and item count in
+ * front) can still be read.
+ * <p>
+ * Only encodes and decodes whole files. The live regions are kept by {@link BinaryBackend}, like every other backend.
+ */
+public class BinaryStore {
+
+    static final int MAGIC = 0x4B535042; // KSPB
+    static final int VERSION = 2;
+    static final int SEQUENTIAL_VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryStore() {}
+
+    // Encoding
+
+    /** Reads every region from a binary file.
+     */
+    public static List<Region> read(File file) throws IOException {
+        if (version(file) == VERSION) {
+            try (RegionFile regions = new RegionFile(file)) {
+                List<Region> ret = new ArrayList<>();
+                for (String name : regions.getRegions()) ret.add(regions.read(name));
+                return ret;
+            }
+        }
+        return readSequential(file);
+    }
+
+    /** Returns the format version of a binary file.
+     */
+    static int version(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining()) if (channel.read(header) < 0) break;
+            header.flip();
+            if (header.remaining() < 8 || header.getInt() != MAGIC)
+                throw new IOException(file.getName() + " is not a binary database");
+            int version = header.getInt();
+            if (version != VERSION && version != SEQUENTIAL_VERSION)
+                throw new IOException("Unsupported version " + version + " in " + file.getName());
+            return version;
+        }
+    }
+
+    private static List<Region> readSequential(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File too large: " + size + " bytes");
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining()) if (channel.read(buffer) < 0) break;
+            buffer.flip();
+            buffer.position(8); // Magic and version, already checked
+
+            Reader reader = new Reader(buffer);
+            int regionCount = buffer.getInt();
+            List<Region> ret = new ArrayList<>(regionCount);
+            for (int i = 0; i != regionCount; i++) {
+                Region r = new Region(reader.string(), buffer.getInt());
+                reader.items(r, buffer.getInt());
+                ret.add(r);
+            }
+            return ret;
+        }
+    }
+
+    /** Writes the regions to a binary file. The file is written next to the target and renamed over it once complete.
+     */
+    public static void write(File target, Collection<Region> regions) throws IOException {
+        write(target, regions, n -> {});
+    }
+
+    /**
+     * @param progress Receives the amount of records written so far
+     */
+    public static void write(File target, Collection<Region> regions, IntConsumer progress) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The directory's size is known beforehand, but not the offsets: bodies go first, directory last
+            List<byte[]> names = new ArrayList<>(regions.size());
+            int directoryLength = 0;
+            for (Region r : regions) {
+                byte[] name = r.getName().getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                directoryLength += 4 + name.length + 8 + 8 + 4;
+            }
+
+            Writer writer = new Writer(channel, HEADER_LENGTH + directoryLength, progress);
+            long[] offsets = new long[regions.size()];
+            long[] lengths = new long[regions.size()];
+            int i = 0;
+            for (Region r : regions) {
+                offsets[i] = writer.position();
+                writer.items(r);
+                lengths[i] = writer.position() - offsets[i];
+                i++;
+            }
+            writer.flush();
+
+            ByteBuffer directory = ByteBuffer.allocate(HEADER_LENGTH + directoryLength);
+            directory.putInt(MAGIC).putInt(VERSION).putInt(regions.size()).putInt(directoryLength);
+            i = 0;
+            for (Region r : regions) {
+                directory.putInt(names.get(i).length).put(names.get(i));
+                directory.putLong(offsets[i]).putLong(lengths[i]).putInt(r.getSize());
+                i++;
+            }
+            directory.flip();
+            while (directory.hasRemaining()) channel.write(directory, directory.position());
+            channel.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Decodes strings out of a buffer, reusing the same scratch array.
+     */
+    static final class Reader {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[256];
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** Reads a region's items into it.
+         */
+        void items(Region r, int size) {
+            for (int i = 0; i != size; i++) {
+                String key = string();
+                int fieldCount = buffer.getInt();
+                List<String> fields = new ArrayList<>(fieldCount);
+                for (int j = 0; j != fieldCount; j++) fields.add(string());
+                r.addItem(key, fields);
+            }
+        }
+
+        String string() {
+            int length = buffer.getInt();
+            if (length < 0) return null;
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length << 1)];
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Encodes into a direct buffer, flushing it to the channel whenever it fills up.
+     */
+    static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        /**
+         * File position the buffer's contents go to
+         */
+        private long flushed;
+        private final IntConsumer progress;
+        private int written = 0;
+
+        Writer(FileChannel channel, long start, IntConsumer progress) {
+            this.channel = channel;
+            this.flushed = start;
+            this.progress = progress;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void items(Region r) throws IOException {
+            for (String key : r.getItems()) {
+                Collection<String> fields = r.getItem(key);
+                string(key);
+                putInt(fields.size());
+                for (String f : fields) string(f);
+                progress.accept(++written);
+            }
+        }
+
+        void putInt(int i) throws IOException {
+            if (buffer.remaining() < 4) flush();
+            buffer.putInt(i);
+        }
+
+        void string(String s) throws IOException {
+            if (s == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) flush();
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) flushed += channel.write(buffer, flushed);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps everything in memory, for benchmarks and soak tests that shouldn't touch the disk. Written regions are kept
+ * as they are, and restoring goes back to them.
+ */
+public class MemoryBackend extends AbstractBackend {
+
+    private List<Region> written = List.of();
+
+    public MemoryBackend() {}
+
+    /** Starts out with copies of the given regions, as if they had been written.
+     */
+    public MemoryBackend(Collection<Region> regions) {
+        write(regions, n -> {});
+        restore();
+    }
+
+    @Override
+    public synchronized void write(Collection<Region> regions, IntConsumer progress) {
+        List<Region> copy = new ArrayList<>(regions.size());
+        int count = 0;
+        for (Region r : regions) {
+            copy.add(r.copy());
+            count += r.getSize();
+        }
+        written = copy;
+        progress.accept(count);
+    }
+
+    @Override
+    public synchronized void restore() {
+        List<Region> copy = new ArrayList<>(written.size());
+        for (Region r : written) copy.add(r.copy());
+        load(copy);
+    }
+
+    @Override
+    public File getJournalFile() {
+        return null;
+    }
+}
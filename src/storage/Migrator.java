@@ -0,0 +1,66 @@
+package storage;
+
+import persistencelib.Atom;
+import persistencelib.Key;
+import persistencelib.StorageManager;
+import persistencelib.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-shot conversion of the V100 database into a {@link BinaryStore}. The V100 file is left untouched.
+ * <p>
+ * Can be run on its own: {@code java storage.Migrator}, which converts KSPDB.b into KSPDB.bin next to it.
+ */
+public final class Migrator {
+
+    public static final String BINARY_FILE = "KSPDB.bin";
+
+    private Migrator() {}
+
+    /** Copies every region of the manager into a binary file.
+     * @return Amount of records copied
+     */
+    public static int migrate(StorageManager source, File target) throws IOException {
+        List<Region> regions = new ArrayList<>();
+        int count = 0;
+        for (String name : source.getRegions()) {
+            Atom atom = source.getRegion(name);
+            Region r = new Region(name, atom.getSize());
+            for (Key key : atom.getItems()) r.addItem(key.toString(), new ArrayList<>(atom.getItem(key)));
+            regions.add(r);
+            count += r.getSize();
+        }
+        BinaryStore.write(target, regions);
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        StorageManager manager = new StorageManager("KSPDB", Version.V100);
+        long v100 = System.nanoTime() - start;
+
+        File target = StorageFiles.locate(BINARY_FILE);
+        int count = migrate(manager, target);
+
+        start = System.nanoTime();
+        new BinaryBackend(target);
+        long binary = System.nanoTime() - start;
+
+        // Single region straight from the directory
+        start = System.nanoTime();
+        int crashed;
+        try (RegionFile file = new RegionFile(target)) {
+            Region r = file.read("Crashed");
+            crashed = r == null ? 0 : r.getSize();
+        }
+        long single = System.nanoTime() - start;
+
+        System.out.println("Migrated " + count + " records into " + target.getName());
+        System.out.println("V100 load: " + v100 / 1000 + "us, binary load: " + binary / 1000 + "us, "
+                + "Crashed only (" + crashed + " records): " + single / 1000 + "us");
+    }
+}
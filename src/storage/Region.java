@@ -0,0 +1,75 @@
+package storage;
+
+import java.util.*;
+
+/**
+ * A named set of records, each stored under a unique key. Same model as the library's {@code Atom}, minus the
+ * {@code Key} wrapper: keys are plain strings.
+ * <p>
+ * Record contents are stored as given, and must not be modified afterwards.
+ */
+public class Region {
+
+    private final String name;
+    private final Map<String, Collection<String>> items;
+
+    public Region(String name) {
+        this(name, 16);
+    }
+
+    public Region(String name, int expectedSize) {
+        this.name = name;
+        this.items = new LinkedHashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return false if the key is already taken.
+     */
+    public boolean addItem(String key, Collection<String> fields) {
+        return items.putIfAbsent(key, fields) == null;
+    }
+
+    /**
+     * @return false if there's no record under the key.
+     */
+    public boolean replaceItem(String key, Collection<String> fields) {
+        return items.replace(key, fields) != null;
+    }
+
+    /**
+     * @return false if there's no record under the key.
+     */
+    public boolean removeItem(String key) {
+        return items.remove(key) != null;
+    }
+
+    public Collection<String> getItem(String key) {
+        return items.get(key);
+    }
+
+    /** Returns the keys, in insertion order. The returned set is a read-only view.
+     */
+    public Set<String> getItems() {
+        return Collections.unmodifiableSet(items.keySet());
+    }
+
+    public int getSize() {
+        return items.size();
+    }
+
+    public void clear() {
+        items.clear();
+    }
+
+    /** Returns a copy of the region. Records aren't modified once stored, so they're shared with the copy.
+     */
+    public Region copy() {
+        Region ret = new Region(name, items.size());
+        ret.items.putAll(items);
+        return ret;
+    }
+}
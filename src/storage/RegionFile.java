@@ -0,0 +1,124 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only view of a {@link BinaryStore} file. Only the directory is read when opening it, and each region is
+ * read on its own when it's needed, so a single region can be read (or scanned) without touching the rest of the
+ * file.
+ * <p>
+ * Regions are copied into memory instead of memory mapped. A mapping lasts until it's garbage collected, and on
+ * Windows a mapped file can't be replaced, so the next save couldn't rename the new file over it.
+ */
+public class RegionFile implements Closeable {
+
+    private record Entry(String name, long offset, long length, int size) {}
+
+    private final File file;
+    private final FileChannel channel;
+    private final Map<String, Entry> directory = new LinkedHashMap<>();
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+        if (BinaryStore.version(file) != BinaryStore.VERSION)
+            throw new IOException(file.getName() + " has no region directory, it must be loaded as a whole");
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, BinaryStore.HEADER_LENGTH);
+            header.position(8); // Magic and version
+            int regionCount = header.getInt();
+            int directoryLength = header.getInt();
+
+            ByteBuffer dir = read(BinaryStore.HEADER_LENGTH, directoryLength);
+            BinaryStore.Reader reader = new BinaryStore.Reader(dir);
+            for (int i = 0; i != regionCount; i++) {
+                Entry e = new Entry(reader.string(), dir.getLong(), dir.getLong(), dir.getInt());
+                if (e.offset() + e.length() > channel.size())
+                    throw new IOException("Region " + e.name() + " goes past the end of " + file.getName());
+                directory.put(e.name().toUpperCase(Locale.ROOT), e);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Set<String> getRegions() {
+        Set<String> ret = new LinkedHashSet<>();
+        for (Entry e : directory.values()) ret.add(e.name());
+        return ret;
+    }
+
+    public boolean hasRegion(String name) {
+        return directory.containsKey(name.toUpperCase(Locale.ROOT));
+    }
+
+    /** Amount of records in a region, read from the directory. -1 if there's no such region.
+     */
+    public int getSize(String name) {
+        Entry e = directory.get(name.toUpperCase(Locale.ROOT));
+        return e == null ? -1 : e.size();
+    }
+
+    /** Decodes a single region.
+     * @return The region, or null if there's no such region.
+     */
+    public Region read(String name) throws IOException {
+        Entry e = directory.get(name.toUpperCase(Locale.ROOT));
+        if (e == null) return null;
+        Region r = new Region(e.name(), e.size());
+        new BinaryStore.Reader(read(e)).items(r, e.size());
+        return r;
+    }
+
+    /** Goes through every record of a region without keeping them around.
+     * @return false if there's no such region.
+     */
+    public boolean scan(String name, BiConsumer<String, List<String>> action) throws IOException {
+        Entry e = directory.get(name.toUpperCase(Locale.ROOT));
+        if (e == null) return false;
+        ByteBuffer buffer = read(e);
+        BinaryStore.Reader reader = new BinaryStore.Reader(buffer);
+        for (int i = 0; i != e.size(); i++) {
+            String key = reader.string();
+            int fieldCount = buffer.getInt();
+            List<String> fields = new ArrayList<>(fieldCount);
+            for (int j = 0; j != fieldCount; j++) fields.add(reader.string());
+            action.accept(key, fields);
+        }
+        return true;
+    }
+
+    private ByteBuffer read(Entry e) throws IOException {
+        if (e.length() > Integer.MAX_VALUE) throw new IOException("Region " + e.name() + " is too large to read");
+        return read(e.offset(), (int) e.length());
+    }
+
+    /** Reads part of the file into a buffer of its own, positioned at its start.
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer ret = ByteBuffer.allocate(length);
+        while (ret.hasRemaining()) {
+            if (channel.read(ret, offset + ret.position()) < 0)
+                throw new IOException(file.getName() + " ended before its position " + (offset + length));
+        }
+        return ret.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,29 @@
+package storage;
+
+import java.io.IOException;
+
+/**
+ * Backends that can be picked at startup.
+ */
+public enum StorageEngine {
+    /**
+     * The original text database, KSPDB.b
+     */
+    V100,
+    /**
+     * Binary database, KSPDB.bin. See {@link Migrator} to convert an existing one
+     */
+    BINARY,
+    /**
+     * Nothing is read from or written to disk
+     */
+    MEMORY;
+
+    public Backend open() throws IOException {
+        return switch (this) {
+            case V100 -> new V100Backend("KSPDB");
+            case BINARY -> new BinaryBackend(StorageFiles.locate(Migrator.BINARY_FILE));
+            case MEMORY -> new MemoryBackend();
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package storage;
+
+import persistencelib.StorageManager;
+
+import java.io.File;
+
+/**
+ * Locates the files kept next to the database. The {@link StorageManager} stores its file in the folder the library
+ * was loaded from, so everything else goes there as well.
+ */
+public final class StorageFiles {
+
+    private StorageFiles() {}
+
+    /** Returns a file with the given name, in the same folder as the database.
+     */
+    public static File locate(String name) {
+        // Same lookup the manager does
+        String path = StorageManager.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        if (path.matches(".*\\.jar$")) path = path.substring(0, path.lastIndexOf('/') + 1);
+        return new File(path + name);
+    }
+}
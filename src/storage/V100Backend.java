@@ -0,0 +1,57 @@
+package storage;
+
+import persistencelib.Atom;
+import persistencelib.Key;
+import persistencelib.StorageManager;
+import persistencelib.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The original text database. Reading is left to the {@link StorageManager}, whose regions are copied over once
+ * loaded. Writing goes through {@link V100Writer}, which produces the same format.
+ */
+public class V100Backend extends AbstractBackend {
+
+    private final String name;
+
+    /**
+     * @param name Database name, as given to the manager. The file is the name plus ".b"
+     */
+    public V100Backend(String name) throws IOException {
+        this.name = name;
+        restore();
+    }
+
+    public File getFile() {
+        return StorageFiles.locate(name + ".b");
+    }
+
+    @Override
+    public void write(Collection<Region> regions, IntConsumer progress) throws IOException {
+        V100Writer.write(getFile(), regions, progress);
+    }
+
+    @Override
+    public void restore() throws IOException {
+        StorageManager manager = new StorageManager(name, Version.V100);
+        List<Region> loaded = new ArrayList<>();
+        for (String regionName : manager.getRegions()) {
+            Atom atom = manager.getRegion(regionName);
+            Region r = new Region(regionName, atom.getSize());
+            for (Key key : atom.getItems()) r.addItem(key.toString(), atom.getItem(key));
+            loaded.add(r);
+        }
+        load(loaded);
+    }
+
+    @Override
+    public File getJournalFile() {
+        return StorageFiles.locate(name + ".journal");
+    }
+}
@@ -0,0 +1,76 @@
+package storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes regions in the same V100 format the {@link persistencelib.StorageManager} uses, so that the file can be
+ * written away from the manager (and away from the event thread).
+ * <p>
+ * The new file is written next to the old one and swapped in with a single rename, so a crash halfway through
+ * leaves the previous file intact. The previous file is kept as a backup, like the manager does.
+ */
+final class V100Writer {
+
+    private static final String HEADER = "[1.0.0]";
+
+    private V100Writer() {}
+
+    /**
+     * @param target Database file
+     * @param regions Regions to write. The whole file is replaced, so every region must be included
+     * @param progress Receives the amount of records written so far
+     */
+    static void write(File target, Collection<Region> regions, IntConsumer progress) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             Writer out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            out.write(HEADER);
+            int written = 0;
+            for (Region r : regions) {
+                StringBuilder body = new StringBuilder(r.getName().toUpperCase(Locale.ROOT)).append('{');
+                for (Iterator<String> it = r.getItems().iterator(); it.hasNext(); ) {
+                    String key = it.next();
+                    hex(body, key);
+                    for (String field : r.getItem(key)) hex(body.append(','), field);
+                    if (it.hasNext()) body.append('-');
+                    progress.accept(++written);
+                }
+                body.append('}');
+                out.write(String.format("(%030d)", body.length()));
+                out.append(body);
+            }
+            out.flush();
+            fos.getChannel().force(true);
+        }
+
+        // Backup, then swap
+        if (target.exists())
+            Files.copy(target.toPath(), new File(target.getPath() + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Same encoding as the library: every char as its hex code, except for newlines and tabs, which are written
+     * as 00 and 01. Nulls are written as empty strings.
+     */
+    private static void hex(StringBuilder sb, String s) {
+        if (s == null) return;
+        for (int i = 0; i != s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\n') sb.append("00");
+            else if (c == '\t') sb.append("01");
+            else sb.append(Integer.toHexString(c));
+        }
+    }
+}
@@ -2,21 +2,30 @@ package vessels;
 
 import other.KSPObject;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.Destination;
 import other.util.Field;
+import other.util.FieldWriter;
 import other.util.KSPDate;
+import other.util.Schema;
+import other.util.StoredFields;
+import other.util.Tokenizer;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class Concept extends KSPObject implements KSPObjectListener {
 
-    public static final int ENCODE_FIELD_AMOUNT = 9; // ALWAYS ACCOUNT FOR DESCRIPTION, IN THIS CASE PARENT CLASS TOO
-
     public static final String DELIMITER = ":VC:";
 
+    /** Stored fields, in order. The description goes first.
+     */
+    public enum Stored { TYPE, ITERATION, NAME, CONCEPT, ITERATIONS, PROPERTIES, DESTINATIONS, CREATION_DATE }
+    public static final Schema<Stored> SCHEMA = new Schema<>("vessel concept", Stored.class);
+
     // Persistent fields
     /**
      * Vessel name. Must not include any modifiers, just the ship name.
@@ -114,35 +123,37 @@ public class Concept extends KSPObject implements KSPObjectListener {
         this.creationDate = creationDate;
     }
 
-    /** Generates a concept from a list of fields stored in persistence.
-     * @param fields List of the vessel's fields
+    /** Generates a concept from its stored fields.
+     * @param fields Fields read with {@link Concept#SCHEMA}
      */
-    public Concept(ControllerInterface controller, LinkedList<String> fields) {
+    public Concept(ControllerInterface controller, StoredFields<Stored> fields) {
         this(controller,
-                VesselType.valueOf(fields.get(1)),
-                Integer.parseInt(fields.get(2)),
-                fields.get(3),
-                fields.get(4),
-                changesFromString(controller, fields.get(5)),
-                propertiesFromString(fields.get(6)),
-                destinationsFromString(fields.get(7)),
-                KSPDate.fromString(controller, fields.get(8))
+                VesselType.valueOf(fields.get(Stored.TYPE)),
+                fields.getInt(Stored.ITERATION),
+                fields.get(Stored.NAME),
+                fields.get(Stored.CONCEPT),
+                changesFromString(controller, fields.get(Stored.ITERATIONS)),
+                propertiesFromString(fields.get(Stored.PROPERTIES)),
+                destinationsFromString(fields.get(Stored.DESTINATIONS)),
+                KSPDate.fromString(controller, fields.get(Stored.CREATION_DATE))
         );
-        setDescription(fields.get(0));
+        setDescription(fields.getDescription());
     }
 
     private static List<IterationChange> changesFromString(ControllerInterface controller, String s) {
         if (s.equals("(none)")) return new LinkedList<>();
-        return Arrays.stream(s.split(DELIMITER)).map(ss -> IterationChange.fromString(controller, ss)).collect(Collectors.toList());
+        List<IterationChange> ret = new LinkedList<>();
+        for (String ss : Tokenizer.split(s, DELIMITER)) ret.add(IterationChange.fromString(controller, ss));
+        return ret;
     }
 
     private static Set<Destination> destinationsFromString(String s) {
-        return Arrays.stream(s.split(DELIMITER)).map(Destination::valueOf).collect(Collectors.toUnmodifiableSet());
+        return Arrays.stream(Tokenizer.split(s, DELIMITER)).map(Destination::valueOf).collect(Collectors.toUnmodifiableSet());
     }
 
     private static Set<VesselProperty> propertiesFromString(String s) {
         if (s.equals("(none)")) return new HashSet<>();
-        return Arrays.stream(s.split(DELIMITER)).map(VesselProperty::valueOf).collect(Collectors.toUnmodifiableSet());
+        return Arrays.stream(Tokenizer.split(s, DELIMITER)).map(VesselProperty::valueOf).collect(Collectors.toUnmodifiableSet());
     }
 
     // Logic methods
@@ -152,6 +163,8 @@ public class Concept extends KSPObject implements KSPObjectListener {
     public void newIteration(IterationChange changes) {
         iteration++;
         iterations.add(changes);
+        markDirty();
+        getController().reindex(this);
         // TODO Use changes to modify properties
     }
 
@@ -186,11 +199,23 @@ public class Concept extends KSPObject implements KSPObjectListener {
 
     // Overrides
     @Override
-    public void ready() {
-        conceptObj = getController().getConcept(concept);
+    public void link(ReferenceResolver resolver) {
+        conceptObj = resolver.resolveConcept(this, concept);
         if (conceptObj != null) conceptObj.addEventListener(this);
     }
 
+    @Override
+    public void unlink() {
+        if (conceptObj != null) conceptObj.removeEventListener(this);
+        conceptObj = null;
+    }
+
+    @Override
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        for (IterationChange ic : iterations) if (ic != null) ic.collectText(text);
+    }
+
     @Override
     public String getTextRepresentation() {
         return name + " Mk" + iteration;
@@ -212,24 +237,23 @@ public class Concept extends KSPObject implements KSPObjectListener {
 
     @Override
     public Collection<String> toStorableCollection() {
-        Collection<String> ret = new LinkedList<>(super.toStorableCollection());
-
-        ret.add(type.name());
-        ret.add(Integer.toString(iteration));
-        ret.add(name);
-        ret.add(concept == null ? "(none)" : concept);
-        StringJoiner joiner1 = new StringJoiner(DELIMITER);
-        iterations.forEach(ic -> joiner1.add(IterationChange.toString(ic)));
-        ret.add(joiner1.toString().equals("") ? "(none)" : joiner1.toString());
-        StringJoiner joiner = new StringJoiner(DELIMITER);
+        StoredFields<Stored> ret = SCHEMA.write(getDescription())
+                .set(Stored.TYPE, type.name())
+                .set(Stored.ITERATION, iteration)
+                .set(Stored.NAME, name)
+                .setOptional(Stored.CONCEPT, concept);
+        FieldWriter joiner = new FieldWriter(DELIMITER);
+        for (IterationChange ic : iterations) IterationChange.write(joiner.next(), ic);
+        ret.set(Stored.ITERATIONS, joiner.toString("(none)"));
+        joiner.clear();
         for (VesselProperty p : properties) joiner.add(p.name());
-        ret.add(joiner.toString().equals("") ? "(none)" : joiner.toString());
-        StringJoiner joiner2 = new StringJoiner(DELIMITER);
-        for (Destination l : destinations) joiner2.add(l.name());
-        ret.add(joiner2.toString());
-        ret.add(creationDate.toStorableString());
+        ret.set(Stored.PROPERTIES, joiner.toString("(none)"));
+        joiner.clear();
+        for (Destination l : destinations) joiner.add(l.name());
+        ret.set(Stored.DESTINATIONS, joiner.toString());
+        ret.set(Stored.CREATION_DATE, creationDate.toStorableString());
 
-        return ret;
+        return ret.toList();
     }
 
     @Override // I put this so I didn't have to make a new class for VesselCreator.designModel. Fix later NEVER AHAHASHAHAAHAHAHAHAHAHAHA
@@ -243,6 +267,7 @@ public class Concept extends KSPObject implements KSPObjectListener {
         if (event.getSource() instanceof Concept) {
             conceptObj = null;
             concept = "[REDACTED]";
+            markDirty();
         }
     }
 }
@@ -3,10 +3,12 @@ package vessels;
 import controller.ControllerInterface;
 import other.util.Field;
 import other.util.KSPDate;
+import other.util.Tokenizer;
 import other.KSPObject;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class IterationChange extends KSPObject {
 
@@ -25,20 +27,31 @@ public class IterationChange extends KSPObject {
     }
 
     public IterationChange(ControllerInterface controller, String s) {
+        this(controller, Tokenizer.split(s, DELIMITER));
+    }
+
+    private IterationChange(ControllerInterface controller, String[] three) {
         super(controller);
-        String[] three = s.split(DELIMITER);
         this.iteration = Integer.parseInt(three[0]);
         this.changes = three[1];
         this.changeDate = new KSPDate(getController(), three[2]);
     }
 
     public static IterationChange fromString(ControllerInterface controller, String s) {
-        if (s.split(DELIMITER).length != ENCODE_FIELD_AMOUNT) return null;
-        return new IterationChange(controller, s);
+        String[] split = Tokenizer.split(s, DELIMITER);
+        if (split.length != ENCODE_FIELD_AMOUNT) return null;
+        return new IterationChange(controller, split);
     }
 
     public static String toString(IterationChange ic) {
-        return ic.iteration + DELIMITER + ic.changes + DELIMITER + ic.changeDate.toStorableString();
+        return write(new StringBuilder(), ic).toString();
+    }
+
+    /** Writes the change straight into a builder.
+     */
+    static StringBuilder write(StringBuilder sb, IterationChange ic) {
+        sb.append(ic.iteration).append(DELIMITER).append(ic.changes).append(DELIMITER);
+        return ic.changeDate.writeStorable(sb);
     }
 
     public int getIteration() {
@@ -54,7 +67,9 @@ public class IterationChange extends KSPObject {
     }
 
     @Override
-    public void ready() {
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        if (changes != null) text.accept(changes);
     }
 
     @Override
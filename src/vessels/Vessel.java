@@ -4,29 +4,40 @@ import kerbals.Kerbal;
 import missions.Mission;
 import other.KSPObject;
 import controller.ControllerInterface;
+import controller.ReferenceResolver;
 import other.interfaces.KSPObjectDeletionEvent;
 import other.interfaces.KSPObjectListener;
 import other.util.CelestialBody;
 import other.util.Field;
+import other.util.FieldWriter;
 import other.util.Location;
+import other.util.LongSet;
+import other.util.Schema;
+import other.util.StoredFields;
+import other.util.Tokenizer;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 // when the vessel crashes, mark all crew as KIA. Pass parameter "Survivor" as a list of kerbals, in case some of them managed to survive.
 
 public class Vessel extends KSPObject implements KSPObjectListener {
 
-    public static final int ENCODE_FIELD_AMOUNT = 10; // ALWAYS ACCOUNT FOR DESCRIPTION (IN THIS CASE, FOR TYPE AND ITERATION AS WELL)
     public static final String DELIMITER = ":VI:";
 
+    /** Stored fields, in order. The description goes first.
+     */
+    public enum Stored { ID, CONCEPT, ITERATION, LOCATION, CREW, VESSELS, CRASHED, CRASH_DETAILS, MISSION }
+    public static final Schema<Stored> SCHEMA = new Schema<>("vessel instance", Stored.class);
+
     // Persistent fields
     private final long id;
     private String concept;
     private final int iteration;
     private Location location;
     private final Set<String> crew;
-    private final Set<Long> vessels;
+    private final LongSet vessels;
     // stranded
     private boolean crashed;
     private String crashDetails;
@@ -50,7 +61,7 @@ public class Vessel extends KSPObject implements KSPObjectListener {
                 concept.getIteration(),
                 location,
                 Arrays.stream(crew).filter(Objects::nonNull).map(Kerbal::getName).collect(Collectors.toSet()),
-                vessels.stream().map(Vessel::getId).collect(Collectors.toSet()),
+                new LongSet(vessels.stream().mapToLong(Vessel::getId).toArray()),
                 false,
                 null,
                 null);
@@ -59,7 +70,7 @@ public class Vessel extends KSPObject implements KSPObjectListener {
 
     /** Private implementation. Add params later
      */
-    private Vessel(ControllerInterface controller, long id, String concept, int iteration, Location location, Set<String> crew, Set<Long> vessels, boolean crashed, String crashDetails, String missionName) {
+    private Vessel(ControllerInterface controller, long id, String concept, int iteration, Location location, Set<String> crew, LongSet vessels, boolean crashed, String crashDetails, String missionName) {
         super(controller);
         this.id = id;
         this.concept = concept;
@@ -72,30 +83,33 @@ public class Vessel extends KSPObject implements KSPObjectListener {
         this.vessels = vessels;
     }
 
-    /** Generates a new vessel instance from a list of fields stored in persistence.
-     * @param fields List of fields
+    /** Generates a new vessel instance from its stored fields.
+     * @param fields Fields read with {@link Vessel#SCHEMA}
      */
-    public Vessel(ControllerInterface controller, List<String> fields) {
+    public Vessel(ControllerInterface controller, StoredFields<Stored> fields) {
         this(controller,
-                Long.parseLong(fields.get(1)),
-                fields.get(2),
-                Integer.parseInt(fields.get(3)),
-                Location.fromString(fields.get(4)),
-                crewMembersFromString(fields.get(5)),
-                vesselsFromString(fields.get(6)),
-                Boolean.parseBoolean(fields.get(7)),
-                fields.get(8).equals("(none)") ? null : fields.get(8),
-                fields.get(9)
+                fields.getLong(Stored.ID),
+                fields.get(Stored.CONCEPT),
+                fields.getInt(Stored.ITERATION),
+                Location.fromString(fields.get(Stored.LOCATION)),
+                crewMembersFromString(fields.get(Stored.CREW)),
+                vesselsFromString(fields.get(Stored.VESSELS)),
+                fields.getBoolean(Stored.CRASHED),
+                fields.getOptional(Stored.CRASH_DETAILS),
+                fields.get(Stored.MISSION)
         );
-        setDescription(fields.get(0));
+        setDescription(fields.getDescription());
     }
 
-    private static Set<Long> vesselsFromString(String s) {
-        return s.equals("(none)") ? new HashSet<>() : Arrays.stream(s.split(DELIMITER)).map(Long::parseLong).collect(Collectors.toSet());
+    private static LongSet vesselsFromString(String s) {
+        LongSet ret = new LongSet();
+        if (s.equals("(none)") || s.isEmpty()) return ret;
+        for (String id : Tokenizer.split(s, DELIMITER)) ret.add(Long.parseLong(id));
+        return ret;
     }
 
     private static Set<String> crewMembersFromString(String s) {
-        return s.equals("(none)") ? new HashSet<>(): Arrays.stream(s.split(DELIMITER)).collect(Collectors.toSet());
+        return s.equals("(none)") ? new HashSet<>() : new HashSet<>(Arrays.asList(Tokenizer.split(s, DELIMITER)));
     }
 
 
@@ -113,6 +127,7 @@ public class Vessel extends KSPObject implements KSPObjectListener {
             k.recover();
             crew.remove(k.getName());
         }
+        markDirty();
 
         // Recovery double check
         if (!crewObjs.isEmpty()) System.err.println("WARNING: Vessel was unable to recover all members! Remaining members: " + crewObjs.size());
@@ -140,6 +155,7 @@ public class Vessel extends KSPObject implements KSPObjectListener {
 
         // Last mission
         if (missionObj != null) missionName = missionObj.getName();
+        markDirty();
 
         getController().vesselCrashed(this);
     } // Kerbal... victims, Vessel... survivors
@@ -153,13 +169,13 @@ public class Vessel extends KSPObject implements KSPObjectListener {
     // removeMission()
 
     public void addVessel(Vessel v) {
-        vesselObjs.add(v);
-        vessels.add(v.id);
+        if (vesselObjs.add(v)) v.addEventListener(this);
+        if (vessels.add(v.id)) markDirty();
     }
 
     public void removeVessel(Vessel v) {
-        vesselObjs.remove(v);
-        vessels.remove(v.id);
+        if (vesselObjs.remove(v)) v.removeEventListener(this);
+        if (vessels.remove(v.id)) markDirty();
     }
 
     // addCrew()
@@ -179,6 +195,13 @@ public class Vessel extends KSPObject implements KSPObjectListener {
         return conceptObj.getIteration();
     }
 
+    /** Iteration of the concept at the time the vessel was built. Unlike {@link Vessel#getIteration()}, it's stored
+     * with the vessel and available before {@link Vessel#ready()}.
+     */
+    public int getDesignIteration() {
+        return iteration;
+    }
+
     public long getId() {
         return id;
     }
@@ -192,26 +215,28 @@ public class Vessel extends KSPObject implements KSPObjectListener {
     }
     public void setLocation(Location location) {
         this.location = location;
+        markDirty();
+        getController().reindex(this);
     }
 
     public Set<String> getCrew() {
         return new HashSet<>(crew);
     }
 
-    public Set<Long> getVessels() {
-        return new HashSet<>(vessels);
+    public LongSet getVessels() {
+        return vessels.copy();
     }
 
     // Overrides
     @Override
-    public void ready() {
+    public void link(ReferenceResolver resolver) {
         // Get vessel mission
-        missionObj = getController().getMission(missionName);
+        missionObj = resolver.resolveMission(this, missionName);
         if (missionObj != null) missionObj.addEventListener(this);
 
         // Get crew
         for (String s : crew) {
-            Kerbal k = getController().getKerbal(s);
+            Kerbal k = resolver.resolveKerbal(this, s);
             if (k != null) {
                 k.addEventListener(this);
                 crewObjs.add(k);
@@ -219,38 +244,56 @@ public class Vessel extends KSPObject implements KSPObjectListener {
         }
 
         // Get concept
-        conceptObj = getController().getConcept(concept);
+        conceptObj = resolver.resolveConcept(this, concept);
         if (conceptObj != null) conceptObj.addEventListener(this);
 
         // Get connected vessels
-        for (long l : vessels) {
-            Vessel v = getController().getInstance(l);
-            if (v != null) vesselObjs.add(v);
+        for (PrimitiveIterator.OfLong it = vessels.iterator(); it.hasNext(); ) {
+            Vessel v = resolver.resolveVessel(this, it.nextLong());
+            if (v != null) {
+                v.addEventListener(this);
+                vesselObjs.add(v);
+            }
         }
     }
 
     @Override
-    public Collection<String> toStorableCollection() {
-        Collection<String> ret = new LinkedList<>(super.toStorableCollection());
+    public void unlink() {
+        if (missionObj != null) missionObj.removeEventListener(this);
+        if (conceptObj != null) conceptObj.removeEventListener(this);
+        for (Kerbal k : crewObjs) k.removeEventListener(this);
+        for (Vessel v : vesselObjs) v.removeEventListener(this);
+        missionObj = null;
+        conceptObj = null;
+        crewObjs.clear();
+        vesselObjs.clear();
+    }
 
-        ret.add(Long.toString(id));
-        ret.add(concept);
-        ret.add(Integer.toString(iteration));
-        ret.add(Location.toString(location));
+    @Override
+    public Collection<String> toStorableCollection() {
+        StoredFields<Stored> ret = SCHEMA.write(getDescription())
+                .set(Stored.ID, id)
+                .set(Stored.CONCEPT, concept)
+                .set(Stored.ITERATION, iteration)
+                .set(Stored.LOCATION, Location.toString(location));
 
-        StringJoiner joiner = new StringJoiner(DELIMITER);
+        FieldWriter joiner = new FieldWriter(DELIMITER);
         crew.forEach(joiner::add);
-        if (joiner.toString().equals("")) joiner.add("(none)");
-        ret.add(joiner.toString());
-
-        StringJoiner joiner2 = new StringJoiner(DELIMITER);
-        vessels.forEach(l -> joiner.add(Long.toString(l)));
-        if (joiner.toString().equals("")) joiner.add("(none)");
-        ret.add(joiner2.toString());
-        ret.add(Boolean.toString(crashed));
-        ret.add(crashDetails == null ? "(none)" : crashDetails);
-        ret.add(missionName);
-        return ret;
+        ret.set(Stored.CREW, joiner.toString("(none)"));
+
+        joiner.clear();
+        vessels.forEach(joiner::add);
+        ret.set(Stored.VESSELS, joiner.toString("(none)"));
+        ret.set(Stored.CRASHED, crashed);
+        ret.setOptional(Stored.CRASH_DETAILS, crashDetails);
+        ret.set(Stored.MISSION, missionName);
+        return ret.toList();
+    }
+
+    @Override
+    public void collectText(Consumer<String> text) {
+        super.collectText(text);
+        if (crashDetails != null) text.accept(crashDetails);
     }
 
     @Override
@@ -287,19 +330,28 @@ public class Vessel extends KSPObject implements KSPObjectListener {
         // Crew member deleted
         if (event.getSource() instanceof Kerbal k) {
             crewObjs.remove(k);
-            crew.remove(k.getName());
+            if (crew.remove(k.getName())) markDirty();
         }
 
         // Concept deleted
         if (event.getSource() instanceof Concept) {
             concept = "[REDACTED]";
             conceptObj = null;
+            markDirty();
+            getController().reindex(this);
         }
 
         // Mission deleted
         if (event.getSource() instanceof Mission m) {
             missionObj = null;
             missionName = "[REDACTED]";
+            markDirty();
+        }
+
+        // Connected vessel deleted or recovered
+        if (event.getSource() instanceof Vessel v) {
+            vesselObjs.remove(v);
+            if (vessels.remove(v.id)) markDirty();
         }
     }
 }